@@ -0,0 +1,82 @@
+package gr.aueb.cf.booklibapp.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to complete a burst of concurrent blocking calls, each standing in for a slow
+ * repository or Google Books call, under each thread model:
+ *
+ * <ul>
+ *     <li>{@code elastic}: Reactor's bounded elastic scheduler, used for blocking calls by default</li>
+ *     <li>{@code tomcat}: a fixed pool of 200 platform threads, Tomcat's default request pool</li>
+ *     <li>{@code virtual}: one virtual thread per call, as with {@code spring.threads.virtual.enabled}</li>
+ * </ul>
+ *
+ * <p>The {@code virtual} model needs the benchmark JVM to be Java 21 or later.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadModelBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"elastic", "tomcat", "virtual"})
+    private String model;
+
+    @Param({"200", "2000"})
+    private int concurrency;
+
+    @Param({"50"})
+    private long latencyMillis;
+
+    private Scheduler scheduler;
+
+    @Setup
+    public void setUp() {
+        switch (model) {
+            case "elastic":
+                scheduler = Schedulers.newBoundedElastic(Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE,
+                        Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "benchmark-elastic");
+                break;
+            case "tomcat":
+                scheduler = Schedulers.fromExecutorService(Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), "benchmark-tomcat");
+                break;
+            default:
+                scheduler = Schedulers.fromExecutorService(VirtualThreads.newThreadPerTaskExecutor("benchmark-virtual-"), "benchmark-virtual");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Benchmark
+    public long burst() {
+        return Flux.range(0, concurrency)
+                .flatMap(i -> Mono.fromCallable(this::blockingCall).subscribeOn(scheduler), concurrency)
+                .count()
+                .block();
+    }
+
+    private long blockingCall() throws InterruptedException {
+        Thread.sleep(latencyMillis);
+        return latencyMillis;
+    }
+}
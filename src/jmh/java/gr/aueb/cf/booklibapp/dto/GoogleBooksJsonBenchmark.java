@@ -0,0 +1,91 @@
+package gr.aueb.cf.booklibapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.booklibapp.service.GoogleBooksSearchParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding cost of one Google Books search page. {@code deserialize} is the full payload
+ * read through databind; {@code parseProjected} is the {@code fields=} partial response read
+ * by {@link GoogleBooksSearchParser}. Run with {@code -PjmhProfilers=gc} for the allocation
+ * per search ({@code gc.alloc.rate.norm}). The payload sizes themselves are asserted in
+ * {@code GoogleBooksSearchParserTests}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GoogleBooksJsonBenchmark {
+
+    @Param({"18", "40"})
+    private int items;
+
+    private ObjectMapper objectMapper;
+    private GoogleBooksSearchResponse response;
+    private byte[] json;
+    private byte[] projectedJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();     // Same defaults as the application's mapper
+        List<GoogleBookDTO> books = new ArrayList<>();
+        List<GoogleBookDTO> projected = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            VolumeInfoDTO info = new VolumeInfoDTO(
+                    "Title " + i,
+                    List.of("Author " + i, "Co-author " + i),
+                    "Publisher",
+                    "2020-01-01",
+                    "A description long enough to resemble what Google Books returns for a volume. ".repeat(6),
+                    List.of(new IndustryIdentifierDTO("ISBN_13", "97800000000" + String.format("%02d", i)),
+                            new IndustryIdentifierDTO("ISBN_10", "00000000" + String.format("%02d", i))),
+                    320,
+                    List.of("Fiction"),
+                    new ImageLinksDTO("http://books.google.com/small/" + i, "http://books.google.com/thumb/" + i));
+            books.add(new GoogleBookDTO("volume-" + i, info));
+            projected.add(new GoogleBookDTO("volume-" + i, new VolumeInfoDTO(
+                    info.getTitle(), info.getAuthors(), null, null, null, info.getIndustryIdentifiers(), null,
+                    info.getCategories(), info.getImageLinks())));
+        }
+        response = new GoogleBooksSearchResponse(1000, books);
+        json = objectMapper.writeValueAsBytes(response);
+        projectedJson = objectMapper.copy()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)    // Google omits what the selector drops
+                .writeValueAsBytes(new GoogleBooksSearchResponse(1000, projected));
+    }
+
+    @Benchmark
+    public GoogleBooksSearchResponse deserialize() throws IOException {
+        return objectMapper.readValue(json, GoogleBooksSearchResponse.class);
+    }
+
+    @Benchmark
+    public GoogleBooksSearchResponse parseProjected() throws IOException {
+        return GoogleBooksSearchParser.parse(new ByteArrayInputStream(projectedJson));
+    }
+
+    // Google ignored the selector: the parser still skips the unused fields
+    @Benchmark
+    public GoogleBooksSearchResponse parseFull() throws IOException {
+        return GoogleBooksSearchParser.parse(new ByteArrayInputStream(json));
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
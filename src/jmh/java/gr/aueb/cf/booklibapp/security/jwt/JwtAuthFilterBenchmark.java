@@ -0,0 +1,68 @@
+package gr.aueb.cf.booklibapp.security.jwt;
+
+import gr.aueb.cf.booklibapp.model.Role;
+import gr.aueb.cf.booklibapp.repository.UserRepository;
+import gr.aueb.cf.booklibapp.security.PrincipalCache;
+import gr.aueb.cf.booklibapp.security.UserPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Authenticates one request through {@link JwtAuthFilter} with the real caches in front
+ * of a stubbed {@link UserRepository}, i.e. the steady-state cost of the filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAuthFilterBenchmark {
+
+    private JwtAuthFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        UserPrincipal principal = new UserPrincipal(42L, "reader@example.com", Role.USER, "{bcrypt}hash", 0);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findPrincipalByEmail(anyString())).thenReturn(Optional.of(principal));
+        when(userRepository.findTokenEpochById(anyLong())).thenReturn(Optional.of(0));
+
+        JwtService jwtService = new JwtService(JwtServiceBenchmark.SECRET, 86_400_000L, 604_800_000L, new VerifiedClaimsCache(10_000));
+        PrincipalCache principalCache = new PrincipalCache(userRepository, 10_000, Duration.ofMinutes(5));
+        filter = new JwtAuthFilter(jwtService, principalCache::get, new TokenEpochService(userRepository, 100_000, Duration.ofMinutes(15)), new SimpleMeterRegistry());
+        authorization = "Bearer " + jwtService.generateTokenWithUserId(principal, principal.getId(), principal.getTokenEpoch());
+    }
+
+    @Benchmark
+    public Object authenticatedRequest() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/favorites");
+        request.setServletPath("/api/users/favorites");
+        request.addHeader("Authorization", authorization);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package gr.aueb.cf.booklibapp.security.jwt;
+
+import gr.aueb.cf.booklibapp.model.Role;
+import gr.aueb.cf.booklibapp.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtServiceBenchmark {
+
+    static final String SECRET = "Ym9va2xpYmFwcC1iZW5jaG1hcmstc2VjcmV0LWtleS11c2VkLW9ubHktaW4tam1o";
+
+    private JwtService jwtService;
+    private UserPrincipal principal;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET, 86_400_000L, 604_800_000L, new VerifiedClaimsCache(10_000));
+        principal = new UserPrincipal(42L, "reader@example.com", Role.USER, "{bcrypt}hash", 0);
+        token = jwtService.generateTokenWithUserId(principal, principal.getId(), principal.getTokenEpoch());
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateTokenWithUserId(principal, principal.getId(), principal.getTokenEpoch());
+    }
+
+    @Benchmark
+    public String extractUsernameVerifyingSignature() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public Claims resolveClaimsFromCache() {
+        return jwtService.resolveClaims(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token, principal);
+    }
+}
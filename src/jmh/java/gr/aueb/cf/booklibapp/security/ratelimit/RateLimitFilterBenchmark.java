@@ -0,0 +1,77 @@
+package gr.aueb.cf.booklibapp.security.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the inbound limiter on its grant path, from one client shared by every
+ * thread (a single contended bucket) to many clients spread over the stripes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class RateLimitFilterBenchmark {
+
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+
+    @Param({"1", "100000"})
+    private int clients;
+
+    private String[] clientKeys;
+    private RateLimiter limiter;
+    private RateLimitFilter filter;
+
+    @Setup
+    public void setUp() {
+        clientKeys = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            clientKeys[i] = "reader" + i + "@example.com";
+        }
+        limiter = new RateLimiter(UNLIMITED, UNLIMITED, 16);
+        filter = new RateLimitFilter(new RateLimitPolicy(new SimpleMeterRegistry(), true, 16, Duration.ofMinutes(10),
+                UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED));
+    }
+
+    @Benchmark
+    public long limiter() {
+        String client = clientKeys[ThreadLocalRandom.current().nextInt(clients)];
+        return limiter.tryAcquire(client, System.nanoTime());
+    }
+
+    @Benchmark
+    public int filter() throws ServletException, IOException {
+        String client = clientKeys[ThreadLocalRandom.current().nextInt(clients)];
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(client, null, AuthorityUtils.NO_AUTHORITIES));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/search");
+        request.setServletPath("/api/books/search");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+            return response.getStatus();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package gr.aueb.cf.booklibapp.service;
+
+import gr.aueb.cf.booklibapp.dto.UserDTO;
+import gr.aueb.cf.booklibapp.model.Book;
+import gr.aueb.cf.booklibapp.model.Role;
+import gr.aueb.cf.booklibapp.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserDtoMappingBenchmark {
+
+    @Param({"0", "10", "100", "1000"})
+    private int favorites;
+
+    private UserServiceImpl userService;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        // The mapping touches none of the collaborators
+        userService = new UserServiceImpl(null, null, null, null, null, null, null, null, null, null, null, null, null);
+        user = User.builder()
+                .id(42L)
+                .username("bookworm")
+                .email("bookworm@example.com")
+                .role(Role.USER)
+                .favoriteBooks(new HashSet<>())
+                .build();
+        for (int i = 0; i < favorites; i++) {
+            Book book = new Book();
+            book.setId("volume-" + i);
+            book.setTitle("Title " + i);
+            book.setSmallThumbnail("https://books.google.com/books/content?id=volume-" + i);
+            user.getFavoriteBooks().add(book);
+        }
+    }
+
+    @Benchmark
+    public UserDTO convertToUserDTO() {
+        return userService.convertToUserDTO(user);
+    }
+}
@@ -0,0 +1,52 @@
+package gr.aueb.cf.booklibapp.validation;
+
+import gr.aueb.cf.booklibapp.dto.AvailabilityDTO;
+import gr.aueb.cf.booklibapp.dto.UserRegisterDTO;
+import gr.aueb.cf.booklibapp.service.IUserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserValidatorBenchmark {
+
+    @Param({"valid", "invalid"})
+    private String input;
+
+    private UserValidator validator;
+    private UserRegisterDTO registerDto;
+
+    @Setup
+    public void setUp() {
+        IUserService userService = mock(IUserService.class);
+        when(userService.checkAvailability(any(), any())).thenReturn(new AvailabilityDTO(true, true));
+        validator = new UserValidator(userService);
+
+        registerDto = "valid".equals(input)
+                ? new UserRegisterDTO("bookworm", "Secret1!", "bookworm@example.com")
+                : new UserRegisterDTO("bookworm", "secret", "not-an-email");
+        registerDto.setConfirmPassword(registerDto.getPassword());
+    }
+
+    @Benchmark
+    public Errors validate() {
+        Errors errors = new BeanPropertyBindingResult(registerDto, "userRegisterDTO");
+        validator.validate(registerDto, errors);
+        return errors;
+    }
+}
@@ -0,0 +1,394 @@
+package gr.aueb.cf.booklibapp.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
+import gr.aueb.cf.booklibapp.dto.VolumeInfoDTO;
+import gr.aueb.cf.booklibapp.service.SearchType;
+import gr.aueb.cf.booklibapp.service.cache.SearchKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Local catalog of every volume received from Google Books.
+ *
+ * <p>Volumes are kept in an inverted index over title, author, category and ISBN-13
+ * terms. The index lives in memory, holds at most {@code catalog.max-volumes} volumes
+ * (the least valuable are evicted) and is rebuilt in the background at startup from an
+ * append-only journal ({@code volumes.ndjson}) in {@code catalog.dir}. New or changed
+ * volumes are appended to the journal by a single writer with a bounded queue; batches
+ * that do not fit are dropped and only kept in memory. Once the journal holds more than
+ * twice as many lines as there are volumes, the writer rewrites it with the latest
+ * version of each.</p>
+ *
+ * <p>Stored volumes are copied on the way in and on the way out, as in the search cache.</p>
+ */
+@Component
+public class BookCatalog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookCatalog.class);
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final String JOURNAL_FILE = "volumes.ndjson";
+
+    private static final String TITLE_FIELD = "t:";
+    private static final String AUTHOR_FIELD = "a:";
+    private static final String CATEGORY_FIELD = "c:";
+    private static final String ISBN_FIELD = "i:";
+    private static final List<String> ALL_FIELDS = List.of(TITLE_FIELD, AUTHOR_FIELD, CATEGORY_FIELD, ISBN_FIELD);
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path journal;
+    private final Cache<String, GoogleBookDTO> volumes;
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+    private final ExecutorService writer;
+    private final AtomicLong droppedWrites = new AtomicLong();
+    private long journalLines;                  // Only touched by the writer thread
+    private final Set<String> ingestedWhileLoading = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    @Autowired
+    public BookCatalog(
+            ObjectMapper objectMapper,
+            @Value("${catalog.enabled:true}") boolean enabled,
+            @Value("${catalog.dir:data/catalog}") String directory,
+            @Value("${catalog.max-volumes:50000}") long maxVolumes,
+            @Value("${catalog.write-queue:1000}") int writeQueue
+    ) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.journal = Paths.get(directory).resolve(JOURNAL_FILE);
+        this.volumes = Caffeine.newBuilder()
+                .maximumSize(maxVolumes)
+                .executor(Runnable::run)                // Postings are cleaned up by the thread that evicted
+                .removalListener((String id, GoogleBookDTO book, RemovalCause cause) -> {
+                    if (cause.wasEvicted() && id != null && book != null) {
+                        unindex(id, book);
+                    }
+                })
+                .build();
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(writeQueue),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "book-catalog-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, executor) -> {
+                    droppedWrites.incrementAndGet();
+                    LOGGER.debug("Book catalog write queue is full, dropping a journal batch");
+                });
+    }
+
+    // Replayed on the writer thread, ahead of any append, so startup does not wait for the journal
+    @PostConstruct
+    void startLoading() {
+        if (!enabled) {
+            loaded = true;
+            return;
+        }
+        writer.execute(this::load);
+    }
+
+    void load() {
+        try {
+            if (!Files.exists(journal)) {
+                return;
+            }
+            long lines = 0;
+            try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    lines++;
+                    GoogleBookDTO book = objectMapper.readValue(line, GoogleBookDTO.class);
+                    if (!ingestedWhileLoading.contains(book.getId())) {
+                        index(book);        // Later lines replace earlier versions; live results are newer than both
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Could not read book catalog journal {}, continuing with {} volumes", journal, size(), e);
+            }
+            LOGGER.info("Book catalog loaded {} volumes from {}", size(), journal);
+            journalLines = lines;
+            compactIfOutgrown();
+        } finally {
+            loaded = true;
+            ingestedWhileLoading.clear();
+        }
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        return (int) volumes.estimatedSize();
+    }
+
+    public GoogleBookDTO findById(String id) {
+        return GoogleBookDTO.copyOf(volumes.getIfPresent(id));
+    }
+
+    /**
+     * Journal batches dropped because the write queue was full.
+     */
+    public long getDroppedWrites() {
+        return droppedWrites.get();
+    }
+
+    public void ingest(Collection<GoogleBookDTO> books) {
+        if (!enabled || books.isEmpty()) {
+            return;
+        }
+        List<GoogleBookDTO> changed = new ArrayList<>();
+        for (GoogleBookDTO book : books) {
+            if (book == null || book.getId() == null || book.getVolumeInfo() == null) {
+                continue;
+            }
+            if (!book.equals(volumes.getIfPresent(book.getId()))) {
+                if (!loaded) {
+                    ingestedWhileLoading.add(book.getId());
+                }
+                GoogleBookDTO stored = GoogleBookDTO.copyOf(book);
+                index(stored);
+                changed.add(stored);
+            }
+        }
+        if (!changed.isEmpty()) {
+            writer.execute(() -> append(changed));
+        }
+    }
+
+    public void ingest(GoogleBookDTO book) {
+        ingest(Collections.singletonList(book));
+    }
+
+    /**
+     * Adds volumes seen in search results. These only carry the fields searches ask Google
+     * for, so they never replace a volume already stored from a full lookup.
+     */
+    public void ingestSearchResults(Collection<GoogleBookDTO> books) {
+        if (!enabled || books.isEmpty()) {
+            return;
+        }
+        List<GoogleBookDTO> unseen = new ArrayList<>();
+        for (GoogleBookDTO book : books) {
+            if (book != null && book.getId() != null && volumes.getIfPresent(book.getId()) == null) {
+                unseen.add(book);
+            }
+        }
+        ingest(unseen);
+    }
+
+    /**
+     * Answers a search from the local index. Every term of the query must match.
+     */
+    public List<GoogleBookDTO> search(SearchKey key, int limit) {
+        if (!enabled) {
+            return Collections.emptyList();
+        }
+        List<String> fields = fieldsOf(key.getType());
+        Set<String> terms = key.getType() == SearchType.ISBN
+                ? Collections.singleton(key.getTerm())
+                : tokenize(key.getTerm());
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<String> matches = null;
+        for (String term : terms) {
+            Set<String> termMatches = new HashSet<>();
+            for (String field : fields) {
+                termMatches.addAll(postings.getOrDefault(field + term, Collections.emptySet()));
+            }
+            if (matches == null) {
+                matches = termMatches;
+            } else {
+                matches.retainAll(termMatches);
+            }
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        return matches.stream()
+                .map(volumes::getIfPresent)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(book -> Objects.toString(book.getVolumeInfo().getTitle(), "")))
+                .limit(limit)
+                .map(GoogleBookDTO::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    private synchronized void index(GoogleBookDTO book) {
+        GoogleBookDTO previous = volumes.asMap().put(book.getId(), book);
+        Set<String> terms = termsOf(book);
+        if (previous != null) {
+            for (String term : termsOf(previous)) {
+                if (!terms.contains(term)) {
+                    removePosting(term, book.getId());
+                }
+            }
+        }
+        for (String term : terms) {
+            postings.computeIfAbsent(term, t -> ConcurrentHashMap.newKeySet()).add(book.getId());
+        }
+    }
+
+    // The volume may have been indexed again since it was evicted, so its current terms are kept
+    private synchronized void unindex(String id, GoogleBookDTO evicted) {
+        GoogleBookDTO current = volumes.getIfPresent(id);
+        Set<String> kept = current != null ? termsOf(current) : Collections.emptySet();
+        for (String term : termsOf(evicted)) {
+            if (!kept.contains(term)) {
+                removePosting(term, id);
+            }
+        }
+    }
+
+    private void removePosting(String term, String id) {
+        postings.computeIfPresent(term, (t, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private Set<String> termsOf(GoogleBookDTO book) {
+        VolumeInfoDTO info = book.getVolumeInfo();
+        Set<String> terms = new HashSet<>();
+        if (info == null) {
+            return terms;
+        }
+        tokenize(info.getTitle()).forEach(t -> terms.add(TITLE_FIELD + t));
+        if (info.getAuthors() != null) {
+            info.getAuthors().forEach(author -> tokenize(author).forEach(t -> terms.add(AUTHOR_FIELD + t)));
+        }
+        if (info.getCategories() != null) {
+            info.getCategories().forEach(category -> tokenize(category).forEach(t -> terms.add(CATEGORY_FIELD + t)));
+        }
+        if (info.getIsbn13() != null) {
+            terms.add(ISBN_FIELD + info.getIsbn13());
+        }
+        return terms;
+    }
+
+    private static List<String> fieldsOf(SearchType type) {
+        switch (type) {
+            case TITLE:
+                return List.of(TITLE_FIELD);
+            case AUTHOR:
+                return List.of(AUTHOR_FIELD);
+            case CATEGORY:
+                return List.of(CATEGORY_FIELD);
+            case ISBN:
+                return List.of(ISBN_FIELD);
+            default:
+                return ALL_FIELDS;
+        }
+    }
+
+    private static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void append(List<GoogleBookDTO> books) {
+        try {
+            Files.createDirectories(journal.getParent());
+            try (BufferedWriter out = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (GoogleBookDTO book : books) {
+                    out.write(objectMapper.writeValueAsString(book));
+                    out.newLine();
+                    journalLines++;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not append {} volumes to the book catalog journal", books.size(), e);
+        }
+        compactIfOutgrown();
+    }
+
+    // Changed and evicted volumes leave stale lines behind; rewriting costs one line per volume
+    private void compactIfOutgrown() {
+        if (journalLines > 2L * size()) {
+            compact();
+        }
+    }
+
+    // Rewrites the journal with only the latest version of each volume
+    private void compact() {
+        Path compacted = journal.resolveSibling(JOURNAL_FILE + ".tmp");
+        try {
+            long lines = 0;
+            try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+                for (GoogleBookDTO book : volumes.asMap().values()) {
+                    out.write(objectMapper.writeValueAsString(book));
+                    out.newLine();
+                    lines++;
+                }
+            }
+            Files.move(compacted, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journalLines = lines;
+        } catch (IOException e) {
+            LOGGER.warn("Could not compact the book catalog journal {}", journal, e);
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package gr.aueb.cf.booklibapp.config;
 
-import gr.aueb.cf.booklibapp.repository.UserRepository;
+import gr.aueb.cf.booklibapp.security.BCryptCostCalibrator;
+import gr.aueb.cf.booklibapp.security.BoundedPasswordEncoder;
+import gr.aueb.cf.booklibapp.security.PrincipalCache;
+import gr.aueb.cf.booklibapp.security.PrincipalPasswordUpgrader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -9,27 +16,47 @@ import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
 public class ApplicationConfig {
 
-    private final UserRepository userRepository;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ApplicationConfig.class);
+    private static final int MIN_BCRYPT_COST = 10;
+    private static final int MAX_BCRYPT_COST = 14;
+
+    private final PrincipalCache principalCache;
+    private final PrincipalPasswordUpgrader passwordUpgrader;
+
+    @Value("${security.password.bcrypt-cost:0}")            // 0 calibrates the cost at startup
+    private int bcryptCost;
+
+    @Value("${security.password.target-hash-time:PT0.25S}")
+    private Duration targetHashTime;
+
+    @Value("${security.password.hashing-threads:0}")        // 0 uses one thread per CPU
+    private int hashingThreads;
+
+    @Value("${security.password.hashing-queue:64}")
+    private int hashingQueue;
+
+    @Value("${security.password.hashing-max-wait:PT5S}")
+    private Duration hashingMaxWait;
 
     @Autowired
-    public ApplicationConfig(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public ApplicationConfig(PrincipalCache principalCache, PrincipalPasswordUpgrader passwordUpgrader) {
+        this.principalCache = principalCache;
+        this.passwordUpgrader = passwordUpgrader;
     }
 
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByEmail(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        return principalCache::get;
     }
 
     @Bean
@@ -37,10 +64,12 @@ public class ApplicationConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService());
         authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsPasswordService(passwordUpgrader);     // Rehash on login when the cost changed
         return authProvider;
     }
 
     @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
     public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
         return config.getAuthenticationManager();
     }
@@ -50,11 +79,16 @@ public class ApplicationConfig {
         String idForEncode = "bcrypt";
         Map encoders = new HashMap<>();
 
-        encoders.put(idForEncode, new BCryptPasswordEncoder());
+        int cost = bcryptCost > 0
+                ? bcryptCost
+                : BCryptCostCalibrator.calibrate(targetHashTime, MIN_BCRYPT_COST, MAX_BCRYPT_COST);
+        LOGGER.info("Using BCrypt cost {} (target hash time {})", cost, targetHashTime);
+        encoders.put(idForEncode, new BCryptPasswordEncoder(cost));
 
         PasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(idForEncode, encoders);
 
-        return passwordEncoder;
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(passwordEncoder, threads, hashingQueue, hashingMaxWait);
     }
 
 }
@@ -0,0 +1,115 @@
+package gr.aueb.cf.booklibapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread model for request handling and blocking I/O.
+ *
+ * <p>Repository calls made from reactive chains run on {@code jpaScheduler}. It is sized
+ * to the connection pool so its threads never wait for a connection, has a bounded queue
+ * and reports {@code executor.*} metrics tagged {@code name=jpa}. When the queue is full
+ * the call fails with a {@link java.util.concurrent.RejectedExecutionException}, answered
+ * with 503. Other blocking work, such as waiting for a password hash, runs on
+ * {@code blockingScheduler}.</p>
+ *
+ * <p>By default Tomcat serves requests from its platform thread pool, the JPA threads are
+ * platform threads and {@code blockingScheduler} is Reactor's bounded elastic scheduler.
+ * With {@code spring.threads.virtual.enabled=true} (Java 21 or later) all three use
+ * virtual threads instead, so thousands of requests can wait on slow database or Google
+ * Books calls without growing a platform pool. On an older Java the application refuses
+ * to start.</p>
+ *
+ * <p>Virtual threads do not remove the need to bound the JPA work. Hibernate 5, HikariCP 4
+ * and the JDBC drivers guard connection checkout and statement execution with
+ * {@code synchronized}, and a virtual thread blocked inside a {@code synchronized} block
+ * pins its carrier thread until the database answers. {@code jpaScheduler} therefore keeps
+ * one thread per pooled connection even when its threads are virtual; run with
+ * {@code -Djdk.tracePinnedThreads=short} to see where carriers get pinned.</p>
+ */
+@Configuration
+public class ExecutionConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${jpa.scheduler.threads:0}")                                // 0 matches the connection pool
+    private int jpaThreads;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${jpa.scheduler.queue-capacity:1000}")
+    private int jpaQueueCapacity;
+
+    // Fails at startup rather than when the first virtual thread is needed
+    @PostConstruct
+    void checkVirtualThreads() {
+        if (virtualThreads) {
+            VirtualThreads.requireSupported();
+        }
+    }
+
+    /**
+     * Scheduler for blocking calls other than repository access.
+     */
+    @Bean(destroyMethod = "dispose")            // A no-op for the shared bounded elastic scheduler
+    public Scheduler blockingScheduler() {
+        if (!virtualThreads) {
+            return Schedulers.boundedElastic();
+        }
+        LOGGER.info("Running blocking calls on virtual threads");
+        return Schedulers.fromExecutorService(VirtualThreads.newThreadPerTaskExecutor("blocking-virtual-"), "blocking-virtual");
+    }
+
+    /**
+     * Scheduler for JPA repository calls made from reactive chains.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jpaScheduler(MeterRegistry meterRegistry) {
+        int threads = jpaThreads > 0 ? jpaThreads : connectionPoolSize;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(jpaQueueCapacity), jpaThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        return Schedulers.fromExecutorService(ExecutorServiceMetrics.monitor(meterRegistry, executor, "jpa"), "jpa");
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        LOGGER.info("Serving Tomcat requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("tomcat-virtual-"));
+    }
+
+    private ThreadFactory jpaThreadFactory() {
+        if (virtualThreads) {
+            return VirtualThreads.factory("jpa-virtual-");
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "jpa-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,9 +1,14 @@
 package gr.aueb.cf.booklibapp.config;
 
 
+import gr.aueb.cf.booklibapp.service.exceptions.GoogleBooksUnavailableException;
+import gr.aueb.cf.booklibapp.service.exceptions.InvalidCursorException;
+import gr.aueb.cf.booklibapp.service.exceptions.PasswordHashingBusyException;
 import gr.aueb.cf.booklibapp.service.exceptions.PasswordMismatchException;
+import gr.aueb.cf.booklibapp.service.exceptions.QuotaExceededException;
 import gr.aueb.cf.booklibapp.service.exceptions.UserAlreadyExistsException;
 import gr.aueb.cf.booklibapp.service.exceptions.UserNotFoundException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -13,6 +18,7 @@ import javax.naming.AuthenticationException;
 import javax.xml.bind.ValidationException;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -38,6 +44,46 @@ public class GlobalExceptionHandler {
                 .body(ex.getMessage());
     }
 
+    @ExceptionHandler({InvalidCursorException.class})
+    public ResponseEntity<Object> handleInvalidCursorException(InvalidCursorException ex) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler({GoogleBooksUnavailableException.class})
+    public ResponseEntity<Object> handleGoogleBooksUnavailableException(GoogleBooksUnavailableException ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler({PasswordHashingBusyException.class})
+    public ResponseEntity<Object> handlePasswordHashingBusyException(PasswordHashingBusyException ex) {
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+
+    // The JPA scheduler's queue is full
+    @ExceptionHandler({RejectedExecutionException.class})
+    public ResponseEntity<Object> handleRejectedExecutionException(RejectedExecutionException ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many pending database calls, please retry shortly.");
+    }
+
+    @ExceptionHandler({QuotaExceededException.class})
+    public ResponseEntity<Object> handleQuotaExceededException(QuotaExceededException ex) {
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ex.getMessage());
+    }
+
     @ExceptionHandler(AuthenticationException.class)
     public ResponseEntity<Object> handleAuthenticationException(AuthenticationException ex) {
         return ResponseEntity
@@ -0,0 +1,146 @@
+package gr.aueb.cf.booklibapp.config;
+
+import gr.aueb.cf.booklibapp.catalog.BookCatalog;
+import gr.aueb.cf.booklibapp.security.BoundedPasswordEncoder;
+import gr.aueb.cf.booklibapp.security.PrincipalCache;
+import gr.aueb.cf.booklibapp.security.jwt.TokenEpochService;
+import gr.aueb.cf.booklibapp.security.jwt.VerifiedClaimsCache;
+import gr.aueb.cf.booklibapp.service.GoogleBooksService;
+import gr.aueb.cf.booklibapp.service.cache.BookSearchCache;
+import gr.aueb.cf.booklibapp.service.cache.CaffeineBookSearchCache;
+import gr.aueb.cf.booklibapp.service.quota.QuotaGovernor;
+import gr.aueb.cf.booklibapp.service.quota.QuotaPriority;
+import gr.aueb.cf.booklibapp.service.uniqueness.UniquenessService;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.annotation.PostConstruct;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers the application's own caches and counters with Micrometer. Request,
+ * repository and outbound timings are recorded where they happen.
+ */
+@Configuration
+@PropertySource("classpath:metrics.properties")
+public class MetricsConfig {
+
+    private final MeterRegistry registry;
+    private final VerifiedClaimsCache claimsCache;
+    private final PrincipalCache principalCache;
+    private final TokenEpochService tokenEpochService;
+    private final BookSearchCache bookSearchCache;
+    private final GoogleBooksService googleBooksService;
+    private final UniquenessService uniquenessService;
+    private final PasswordEncoder passwordEncoder;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final QuotaGovernor quotaGovernor;
+    private final BookCatalog bookCatalog;
+
+    @Autowired
+    public MetricsConfig(MeterRegistry registry, VerifiedClaimsCache claimsCache, PrincipalCache principalCache,
+                         TokenEpochService tokenEpochService, BookSearchCache bookSearchCache,
+                         GoogleBooksService googleBooksService,
+                         UniquenessService uniquenessService, PasswordEncoder passwordEncoder,
+                         CircuitBreakerRegistry circuitBreakerRegistry, QuotaGovernor quotaGovernor,
+                         BookCatalog bookCatalog) {
+        this.registry = registry;
+        this.claimsCache = claimsCache;
+        this.principalCache = principalCache;
+        this.tokenEpochService = tokenEpochService;
+        this.bookSearchCache = bookSearchCache;
+        this.googleBooksService = googleBooksService;
+        this.uniquenessService = uniquenessService;
+        this.passwordEncoder = passwordEncoder;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.quotaGovernor = quotaGovernor;
+        this.bookCatalog = bookCatalog;
+    }
+
+    // Bound here rather than through MeterBinder beans, which would be created while the registry itself is
+    @PostConstruct
+    void bindMetrics() {
+        CaffeineCacheMetrics.monitor(registry, claimsCache.getCache(), "jwtClaims");
+        CaffeineCacheMetrics.monitor(registry, principalCache.getCache(), "principals");
+        CaffeineCacheMetrics.monitor(registry, tokenEpochService.getCache(), "tokenEpochs");
+        if (bookSearchCache instanceof CaffeineBookSearchCache) {
+            CaffeineBookSearchCache caffeine = (CaffeineBookSearchCache) bookSearchCache;
+            CaffeineCacheMetrics.monitor(registry, caffeine.getSearches(), "googleSearches");
+            CaffeineCacheMetrics.monitor(registry, caffeine.getVolumes(), "googleVolumes");
+        }
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(registry);
+        FunctionCounter.builder("booklib.google.coalesced", googleBooksService, GoogleBooksService::getCoalescedCalls)
+                .description("Outbound Google Books calls avoided because an identical call was in flight")
+                .register(registry);
+
+        // Keys are tagged by label only, never by the key itself
+        for (String key : quotaGovernor.getKeyLabels()) {
+            FunctionCounter.builder("booklib.google.quota.granted", quotaGovernor, g -> g.getGranted(key))
+                    .description("Outbound Google Books calls granted quota")
+                    .tag("key", key)
+                    .register(registry);
+            FunctionCounter.builder("booklib.google.quota.throttled", quotaGovernor, g -> g.getThrottled(key))
+                    .description("429 responses from Google Books despite local budgeting")
+                    .tag("key", key)
+                    .register(registry);
+            Gauge.builder("booklib.google.quota.available", quotaGovernor, g -> g.getAvailablePermits(key))
+                    .description("Permits a key can grant without waiting")
+                    .tag("key", key)
+                    .register(registry);
+            Gauge.builder("booklib.google.quota.daily.used", quotaGovernor, g -> g.getDailyUsed(key))
+                    .tag("key", key)
+                    .register(registry);
+        }
+        for (QuotaPriority priority : QuotaPriority.values()) {
+            FunctionCounter.builder("booklib.google.quota.rejected", quotaGovernor, g -> g.getRejected(priority))
+                    .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        Gauge.builder("booklib.google.quota.waiting", quotaGovernor, QuotaGovernor::getWaiting)
+                .description("Outbound calls holding a reservation and waiting for it")
+                .register(registry);
+
+        Gauge.builder("booklib.catalog.volumes", bookCatalog, BookCatalog::size)
+                .description("Volumes held in the local book catalog")
+                .register(registry);
+        FunctionCounter.builder("booklib.catalog.writes.dropped", bookCatalog, BookCatalog::getDroppedWrites)
+                .description("Journal batches dropped because the catalog write queue was full")
+                .register(registry);
+
+        FunctionCounter.builder("booklib.uniqueness.checks", uniquenessService, UniquenessService::getDefiniteMisses)
+                .tag("result", "filter_miss")
+                .register(registry);
+        FunctionCounter.builder("booklib.uniqueness.checks", uniquenessService, UniquenessService::getDatabaseChecks)
+                .tag("result", "database")
+                .register(registry);
+
+        if (passwordEncoder instanceof BoundedPasswordEncoder) {
+            BoundedPasswordEncoder encoder = (BoundedPasswordEncoder) passwordEncoder;
+            Gauge.builder("booklib.password.queue", encoder, BoundedPasswordEncoder::getQueueDepth)
+                    .description("Password hashing tasks waiting for a thread")
+                    .register(registry);
+            Gauge.builder("booklib.password.active", encoder, BoundedPasswordEncoder::getActiveCount)
+                    .register(registry);
+            FunctionCounter.builder("booklib.password.rejected", encoder, BoundedPasswordEncoder::getRejections)
+                    .register(registry);
+            FunctionTimer.builder("booklib.password.hash", encoder,
+                            BoundedPasswordEncoder::getHashCount, BoundedPasswordEncoder::getTotalHashNanos, TimeUnit.NANOSECONDS)
+                    .description("Time spent hashing or verifying passwords")
+                    .register(registry);
+            Gauge.builder("booklib.password.hash.max", encoder, e -> e.getMaxHashNanos() / 1e9)
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+    }
+}
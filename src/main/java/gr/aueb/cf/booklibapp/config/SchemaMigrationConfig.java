@@ -0,0 +1,14 @@
+package gr.aueb.cf.booklibapp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+/**
+ * The schema is owned by the Flyway scripts under {@code db/migration/common} and {@code db/migration/<vendor>}, which run at
+ * startup before the persistence unit is built. Hibernate validates its mapping against
+ * the result instead of generating tables.
+ */
+@Configuration
+@PropertySource("classpath:migration.properties")
+public class SchemaMigrationConfig {
+}
@@ -1,12 +1,120 @@
 package gr.aueb.cf.booklibapp.config;
 
+import gr.aueb.cf.booklibapp.service.exceptions.QuotaExceededException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
 
 @Configuration
 public class WebClientConfig {
 
+    public static final String GOOGLE_BOOKS = "googleBooks";
+
+    @Value("${google.books.base-url:https://www.googleapis.com/books/v1/}")   // Overridden by the perf harness to point at its stub
+    private String baseUrl;
+
+    @Value("${google.books.client.max-connections:100}")
+    private int maxConnections;
+
+    @Value("${google.books.client.pending-acquire-timeout:PT2S}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${google.books.client.max-idle-time:PT30S}")
+    private Duration maxIdleTime;
+
+    @Value("${google.books.client.max-life-time:PT5M}")
+    private Duration maxLifeTime;
+
+    @Value("${google.books.client.connect-timeout:PT2S}")
+    private Duration connectTimeout;
+
+    @Value("${google.books.client.response-timeout:PT5S}")    // Backstop; GoogleBooksService applies tighter per-operation timeouts
+    private Duration responseTimeout;
+
+    @Value("${google.books.client.max-in-memory-size:256KB}")   // Largest response body buffered for decoding
+    private DataSize maxInMemorySize;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider googleBooksConnectionProvider() {
+        return ConnectionProvider.builder(GOOGLE_BOOKS)
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)                   // Below Google's idle timeout, so we never reuse a closed connection
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)                              // reactor.netty.connection.provider.* pool gauges
+                .build();
+    }
+
+    @Bean
+    public WebClient webApiClient(WebClient.Builder builder, ConnectionProvider googleBooksConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(googleBooksConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .compress(true)
+                .responseTimeout(responseTimeout);
+        return builder                                       // Boot's builder adds http.client.requests metrics
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) maxInMemorySize.toBytes()))
+                .build();
+    }
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry() {
+        return CircuitBreakerRegistry.ofDefaults();
+    }
+
     @Bean
-    public WebClient webApiClient() { return WebClient.create("https://www.googleapis.com/books/v1/"); }
+    public CircuitBreaker googleBooksCircuitBreaker(
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            @Value("${google.books.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${google.books.circuit-breaker.slow-call-duration-threshold:PT3S}") Duration slowCallDuration,
+            @Value("${google.books.circuit-breaker.slow-call-rate-threshold:80}") float slowCallRateThreshold,
+            @Value("${google.books.circuit-breaker.sliding-window-size:50}") int slidingWindowSize,
+            @Value("${google.books.circuit-breaker.minimum-number-of-calls:20}") int minimumNumberOfCalls,
+            @Value("${google.books.circuit-breaker.wait-duration-in-open-state:PT30S}") Duration waitInOpenState,
+            @Value("${google.books.circuit-breaker.permitted-calls-in-half-open-state:5}") int permittedInHalfOpen
+    ) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(permittedInHalfOpen)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(WebClientConfig::isGoogleFailure)
+                .ignoreExceptions(QuotaExceededException.class)     // Rejected locally, Google was never called
+                .build();
+        return circuitBreakerRegistry.circuitBreaker(GOOGLE_BOOKS, config);
+    }
+
+    // 4xx other than 429 are our own fault and say nothing about Google's health
+    private static boolean isGoogleFailure(Throwable error) {
+        if (error instanceof WebClientResponseException) {
+            int status = ((WebClientResponseException) error).getRawStatusCode();
+            return status >= 500 || status == 429;
+        }
+        return error instanceof WebClientRequestException
+                || error instanceof TimeoutException
+                || error instanceof IOException;
+    }
 }
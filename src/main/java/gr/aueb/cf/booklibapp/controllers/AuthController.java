@@ -1,11 +1,14 @@
 package gr.aueb.cf.booklibapp.controllers;
 
 import gr.aueb.cf.booklibapp.auth.AuthenticationResponse;
+import gr.aueb.cf.booklibapp.dto.AvailabilityDTO;
 import gr.aueb.cf.booklibapp.dto.UserLoginDTO;
 import gr.aueb.cf.booklibapp.dto.UserRegisterDTO;
 import gr.aueb.cf.booklibapp.service.UserServiceImpl;
 import gr.aueb.cf.booklibapp.validation.UserValidator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
@@ -22,6 +25,7 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/auth")
 public class AuthController {
 
@@ -72,6 +76,22 @@ public class AuthController {
         userService.refreshToken(req, res);
     }
 
+    /**
+     * Live availability check for the sign-up form. Names that were never registered
+     * are answered from memory without a database query.
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<?> availability(@RequestParam(required = false) String username,
+                                          @RequestParam(required = false) String email) {
+        if ((username == null || username.isBlank()) && (email == null || email.isBlank())) {
+            return ResponseEntity.badRequest().body("Provide a username or an email to check.");
+        }
+        AvailabilityDTO availability = userService.checkAvailability(username, email);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(availability);
+    }
+
     @GetMapping("/current-user")
     public ResponseEntity<?> getCurrentUser(Principal principal) {
         String username = principal.getName();
@@ -2,10 +2,12 @@ package gr.aueb.cf.booklibapp.controllers;
 
 import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
 import gr.aueb.cf.booklibapp.dto.GoogleBookDetailsDTO;
+import gr.aueb.cf.booklibapp.service.FavoriteBookIds;
 import gr.aueb.cf.booklibapp.service.GoogleBooksService;
-import gr.aueb.cf.booklibapp.service.UserServiceImpl;
+import gr.aueb.cf.booklibapp.service.SearchType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
@@ -18,38 +20,72 @@ import java.security.Principal;
 public class BookController {
 
     private final GoogleBooksService googleBooksService;
-    private final UserServiceImpl userService;
+    private final FavoriteBookIds favoriteBookIds;
 
     @Autowired
-    public BookController(GoogleBooksService googleBooksService, UserServiceImpl userService) {
+    public BookController(GoogleBooksService googleBooksService, FavoriteBookIds favoriteBookIds) {
         this.googleBooksService = googleBooksService;
-        this.userService = userService;
+        this.favoriteBookIds = favoriteBookIds;
     }
 
     @GetMapping("/search")
-    public Flux<GoogleBookDTO> searchBooks(@RequestParam String query) {
-        return googleBooksService.searchBooks(query);
+    public Flux<?> searchBooks(@RequestParam String query,
+                               @RequestParam(defaultValue = "false") boolean localFirst,
+                               @RequestParam(defaultValue = "false") boolean withFavorited,
+                               Principal principal) {
+        return withFavorited(googleBooksService.searchBooks(query, localFirst), withFavorited, principal);
+    }
+
+    @GetMapping("/search/page")
+    public Mono<ResponseEntity<?>> searchBooksPage(@RequestParam(required = false) String query,
+                                                   @RequestParam(defaultValue = "GENERAL") SearchType type,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "18") int size) {
+        if (cursor == null && query == null) {
+            return Mono.just(ResponseEntity.badRequest().body("Either query or cursor is required."));
+        }
+        return googleBooksService.searchPage(type, query, cursor, size)
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping(value = "/search/stream", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<GoogleBookDTO> streamBooks(@RequestParam String query,
+                                           @RequestParam(defaultValue = "GENERAL") SearchType type,
+                                           @RequestParam(defaultValue = "18") int size) {
+        return googleBooksService.streamSearch(type, query, size);
     }
 
     @GetMapping("/search-by-title")
-    public Flux<GoogleBookDTO> searchBooksByTitle(@RequestParam String title) {
-        return googleBooksService.searchBooksByTitle(title);
+    public Flux<?> searchBooksByTitle(@RequestParam String title,
+                                      @RequestParam(defaultValue = "false") boolean localFirst,
+                                      @RequestParam(defaultValue = "false") boolean withFavorited,
+                                      Principal principal) {
+        return withFavorited(googleBooksService.searchBooksByTitle(title, localFirst), withFavorited, principal);
     }
 
     @GetMapping("/search-by-author")
-    public Flux<GoogleBookDTO> searchBooksByAuthor(@RequestParam String author) {
-        return googleBooksService.searchBooksByAuthor(author);
+    public Flux<?> searchBooksByAuthor(@RequestParam String author,
+                                       @RequestParam(defaultValue = "false") boolean localFirst,
+                                       @RequestParam(defaultValue = "false") boolean withFavorited,
+                                       Principal principal) {
+        return withFavorited(googleBooksService.searchBooksByAuthor(author, localFirst), withFavorited, principal);
     }
 
     @GetMapping("/search-by-category")
-    public Flux<GoogleBookDTO> searchBooksByCategory(@RequestParam String category) {
-        return googleBooksService.searchBooksByCategory(category);
+    public Flux<?> searchBooksByCategory(@RequestParam String category,
+                                         @RequestParam(defaultValue = "false") boolean localFirst,
+                                         @RequestParam(defaultValue = "false") boolean withFavorited,
+                                         Principal principal) {
+        return withFavorited(googleBooksService.searchBooksByCategory(category, localFirst), withFavorited, principal);
     }
 
 
     @GetMapping("/search-by-isbn")
-    public Mono<ResponseEntity<?>> searchBooksByIsbn(@RequestParam String isbn) {
-        return googleBooksService.searchBooksByIsbn(isbn)
+    public Mono<ResponseEntity<?>> searchBooksByIsbn(@RequestParam String isbn,
+                                                     @RequestParam(defaultValue = "false") boolean localFirst,
+                                                     @RequestParam(defaultValue = "false") boolean withFavorited,
+                                                     Principal principal) {
+        return withFavorited(googleBooksService.searchBooksByIsbn(isbn, localFirst), withFavorited, principal)
                 .collectList()
                 .flatMap(books -> {
                     if (books.isEmpty()) {
@@ -67,8 +103,7 @@ public class BookController {
 
         Mono<GoogleBookDTO> bookMono = googleBooksService.findBookById(id);
 
-        Mono<Boolean> favoritedMono = userService.findUserByEmail(principal.getName())
-                .map(user -> user.hasFavoritedBook(id))
+        Mono<Boolean> favoritedMono = favoriteBookIds.isFavorite(principal.getName(), id)
                 .defaultIfEmpty(false);
 
         return Mono.zip(bookMono, favoritedMono, GoogleBookDetailsDTO::new)
@@ -76,4 +111,15 @@ public class BookController {
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
+    // Wraps each book with the caller's favorited flag, using one lookup of their favorite ids
+    // that runs alongside the search rather than before it
+    private Flux<?> withFavorited(Flux<GoogleBookDTO> books, boolean withFavorited, Principal principal) {
+        if (!withFavorited || principal == null) {
+            return books;
+        }
+        return Mono.zip(favoriteBookIds.findFavoriteBookIds(principal.getName()), books.collectList())
+                .flatMapMany(tuple -> Flux.fromIterable(tuple.getT2())
+                        .map(book -> new GoogleBookDetailsDTO(book, tuple.getT1().contains(book.getId()))));
+    }
+
 }
@@ -4,17 +4,24 @@ import gr.aueb.cf.booklibapp.dto.*;
 import gr.aueb.cf.booklibapp.model.Book;
 import gr.aueb.cf.booklibapp.model.User;
 import gr.aueb.cf.booklibapp.repository.BookRepository;
+import gr.aueb.cf.booklibapp.security.UserPrincipal;
 import gr.aueb.cf.booklibapp.service.GoogleBooksService;
 import gr.aueb.cf.booklibapp.service.UserServiceImpl;
+import gr.aueb.cf.booklibapp.service.exceptions.PasswordHashingBusyException;
+import gr.aueb.cf.booklibapp.service.quota.QuotaPriority;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import javax.validation.Valid;
 import javax.xml.bind.ValidationException;
@@ -26,18 +33,22 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/users")
 public class UserController {
 
     private final UserServiceImpl userService;
     private final GoogleBooksService booksService;
     private final BookRepository bookRepository;
+    private final Scheduler jpaScheduler;
 
     @Autowired
-    public UserController(UserServiceImpl userService, GoogleBooksService booksService, BookRepository bookRepository) {
+    public UserController(UserServiceImpl userService, GoogleBooksService booksService, BookRepository bookRepository,
+                          @Qualifier("jpaScheduler") Scheduler jpaScheduler) {
         this.userService = userService;
         this.booksService = booksService;
         this.bookRepository = bookRepository;
+        this.jpaScheduler = jpaScheduler;
     }
 
     @GetMapping("/{userId}/favorites")
@@ -53,6 +64,18 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     }
 
+    @GetMapping("/favorites")
+    public ResponseEntity<FavoritesPageDTO> getFavoritesPage(@AuthenticationPrincipal UserPrincipal principal,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(userService.getFavoritesPage(principal.getId(), cursor, size));
+    }
+
+    @GetMapping("/favorites/count")
+    public ResponseEntity<Map<String, Long>> countFavorites(@AuthenticationPrincipal UserPrincipal principal) {
+        return ResponseEntity.ok(Collections.singletonMap("count", userService.countFavorites(principal.getId())));
+    }
+
     @GetMapping("/profile")
     public ResponseEntity<UserProfileDTO> getUserProfile(Principal principal) {
         String email = principal.getName();
@@ -70,12 +93,10 @@ public class UserController {
         String userEmail = principal.getName();
 
         // Fetch book details from Google books API
-        Mono<GoogleBookDTO> bookDetailsMono = booksService.findBookById(bookId);
+        Mono<GoogleBookDTO> bookDetailsMono = booksService.findBookById(bookId, QuotaPriority.FAVORITE);
 
         // Check if the book is favorited by the user
-        return Mono.zip(bookDetailsMono, userService.findUserByEmail(userEmail)
-                        .map(user -> userService.hasFavoritedBook(user, bookId))
-                        .defaultIfEmpty(false))
+        return Mono.zip(bookDetailsMono, userService.isFavorite(userEmail, bookId))
                 .flatMap(tuple -> {
                     GoogleBookDTO book = tuple.getT1();
                     boolean isFavorited = tuple.getT2();
@@ -89,14 +110,17 @@ public class UserController {
                         String bookTitle = volumeInfoDTO.getTitle();
                         String smallThumbnail = volumeInfoDTO.getImageLinks().getSmallThumbnail();
 
-                        // Save the book in database and add it to favorites
-                        return Mono.fromCallable(() -> {
-                                    Book newBook = new Book();
-                                    newBook.setId(book.getId());
-                                    newBook.setTitle(bookTitle);
-                                    newBook.setSmallThumbnail(smallThumbnail);
-                                    return bookRepository.save(newBook);
-                                })
+                        // Save the book in database unless another user already did, and add it to favorites.
+                        // Merging a fresh Book over an existing one would drop its other favoriters.
+                        return Mono.fromCallable(() -> bookRepository.findById(book.getId())
+                                        .orElseGet(() -> {
+                                            Book newBook = new Book();
+                                            newBook.setId(book.getId());
+                                            newBook.setTitle(bookTitle);
+                                            newBook.setSmallThumbnail(smallThumbnail);
+                                            return bookRepository.save(newBook);
+                                        }))
+                                .subscribeOn(jpaScheduler)                  // Off the event loop that delivered the book
                                 .flatMap(savedBook -> userService.addBookToFavorites(userEmail, bookId))
                                 .thenReturn(ResponseEntity.ok().<Void>build());
                     }
@@ -107,18 +131,11 @@ public class UserController {
     public Mono<ResponseEntity<Void>> removeBookFromFavorites(@PathVariable String userId, @PathVariable String bookId, Principal principal) {
         String userEmail = principal.getName();
 
-        // Check if the user has favorited the book
-        return userService.findUserByEmail(userEmail)
-                .flatMap(user -> {
-                    if (userService.hasFavoritedBook(user, bookId)) {
-                        // User has favorited the book, proceed to remove it
-                        return userService.removeBookFromFavorites(userEmail, bookId)
-                                .then(Mono.just(ResponseEntity.ok().<Void>build()));
-                    } else {
-                        // User has not favorited the book, return a response indicating that
-                        return Mono.just(ResponseEntity.notFound().<Void>build());
-                    }
-                });
+        // Remove the favorite, or answer that the user had not favorited the book
+        return userService.removeBookFromFavorites(userEmail, bookId)
+                .map(removed -> removed
+                        ? ResponseEntity.ok().<Void>build()
+                        : ResponseEntity.notFound().<Void>build());
     }
 
 
@@ -144,6 +161,8 @@ public class UserController {
             return ResponseEntity.ok().body(Collections.singletonMap("message", "User profile was updated successfully."));
         } catch (ValidationException e) {
             return ResponseEntity.badRequest().body(Collections.singletonMap("message", e.getMessage()));
+        } catch (PasswordHashingBusyException e) {
+            throw e;                            // 429 with Retry-After from GlobalExceptionHandler
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.singletonMap("message", "An unexpected error occurred."));
         }
@@ -0,0 +1,55 @@
+package gr.aueb.cf.booklibapp.diagnostics;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Reports entity loads and collection initializations to {@link QueryDiagnostics}.
+ */
+@Component
+public class HibernateEventRecorder implements PostLoadEventListener, InitializeCollectionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient EntityManagerFactory entityManagerFactory;
+    private final transient QueryDiagnostics diagnostics;
+
+    @Autowired
+    public HibernateEventRecorder(EntityManagerFactory entityManagerFactory, QueryDiagnostics diagnostics) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.diagnostics = diagnostics;
+    }
+
+    @PostConstruct
+    void register() {
+        if (!diagnostics.isEnabled()) {
+            return;
+        }
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_LOAD, this);
+        registry.appendListeners(EventType.INIT_COLLECTION, this);
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        diagnostics.onEntityLoad(event.getPersister().getEntityName());
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) throws HibernateException {
+        diagnostics.onCollectionFetch(event.getCollection().getRole());
+    }
+}
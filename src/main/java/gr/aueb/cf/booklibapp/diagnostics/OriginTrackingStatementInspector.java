@@ -0,0 +1,24 @@
+package gr.aueb.cf.booklibapp.diagnostics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Sees every SQL statement Hibernate prepares and reports it to {@link QueryDiagnostics}.
+ * The statement itself is returned unchanged.
+ */
+public class OriginTrackingStatementInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient QueryDiagnostics diagnostics;
+
+    public OriginTrackingStatementInspector(QueryDiagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        diagnostics.onStatement(sql);
+        return sql;
+    }
+}
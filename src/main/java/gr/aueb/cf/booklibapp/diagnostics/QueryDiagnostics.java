@@ -0,0 +1,142 @@
+package gr.aueb.cf.booklibapp.diagnostics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects SQL activity per request and per repository method: statement counts,
+ * entity loads by type, collection fetches, repository calls slower than
+ * {@code diagnostics.queries.slow-threshold} and requests over
+ * {@code diagnostics.queries.statement-budget}.
+ */
+@Component
+public class QueryDiagnostics {
+
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final int statementBudget;
+    private final int historySize;
+
+    private final ThreadLocal<RequestQueryStats> currentRequest = new ThreadLocal<>();
+    private final Map<String, LongAdder> statementsByOrigin = new ConcurrentHashMap<>();
+    private final Deque<Map<String, Object>> slowCalls = new ConcurrentLinkedDeque<>();
+    private final Deque<Map<String, Object>> overBudgetRequests = new ConcurrentLinkedDeque<>();
+
+    @Autowired
+    public QueryDiagnostics(
+            @Value("${diagnostics.queries.enabled:false}") boolean enabled,
+            @Value("${diagnostics.queries.slow-threshold:PT0.2S}") Duration slowThreshold,
+            @Value("${diagnostics.queries.statement-budget:20}") int statementBudget,
+            @Value("${diagnostics.queries.history-size:100}") int historySize
+    ) {
+        this.enabled = enabled;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.statementBudget = statementBudget;
+        this.historySize = historySize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getStatementBudget() {
+        return statementBudget;
+    }
+
+    public RequestQueryStats beginRequest() {
+        RequestQueryStats stats = new RequestQueryStats();
+        currentRequest.set(stats);
+        return stats;
+    }
+
+    public void endRequest() {
+        currentRequest.remove();
+    }
+
+    void onStatement(String sql) {
+        QueryOrigin.Frame frame = QueryOrigin.current();
+        String origin = frame == null ? QueryOrigin.UNKNOWN : frame.getOrigin();
+        if (frame != null) {
+            frame.onStatement(sql);
+        }
+        statementsByOrigin.computeIfAbsent(origin, o -> new LongAdder()).increment();
+        RequestQueryStats stats = currentRequest.get();
+        if (stats != null) {
+            stats.onStatement(origin);
+        }
+    }
+
+    void onEntityLoad(String entity) {
+        RequestQueryStats stats = currentRequest.get();
+        if (stats != null) {
+            stats.onEntityLoad(entity);
+        }
+    }
+
+    void onCollectionFetch(String role) {
+        RequestQueryStats stats = currentRequest.get();
+        if (stats != null) {
+            stats.onCollectionFetch(role);
+        }
+    }
+
+    void onRepositoryCall(QueryOrigin.Frame frame, long elapsedNanos) {
+        if (elapsedNanos < slowThresholdNanos || frame.getStatements() == 0) {
+            return;
+        }
+        Map<String, Object> call = new LinkedHashMap<>();
+        call.put("at", Instant.now().toString());
+        call.put("origin", frame.getOrigin());
+        call.put("millis", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        call.put("statements", frame.getStatements());
+        call.put("sql", new ArrayList<>(frame.getSql()));
+        append(slowCalls, call);
+    }
+
+    void onOverBudget(String request, RequestQueryStats stats) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("at", Instant.now().toString());
+        entry.put("request", request);
+        entry.put("statements", stats.getStatements());
+        entry.put("statementsByOrigin", stats.getStatementsByOrigin());
+        entry.put("entityLoads", stats.getEntityLoads());
+        entry.put("collectionFetches", stats.getCollectionFetches());
+        append(overBudgetRequests, entry);
+    }
+
+    public Map<String, Long> getStatementsByOrigin() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        statementsByOrigin.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(entry -> counts.put(entry.getKey(), entry.getValue().sum()));
+        return counts;
+    }
+
+    public List<Map<String, Object>> getSlowCalls() {
+        return new ArrayList<>(slowCalls);
+    }
+
+    public List<Map<String, Object>> getOverBudgetRequests() {
+        return new ArrayList<>(overBudgetRequests);
+    }
+
+    private void append(Deque<Map<String, Object>> history, Map<String, Object> entry) {
+        history.addFirst(entry);
+        while (history.size() > historySize) {
+            history.pollLast();
+        }
+    }
+}
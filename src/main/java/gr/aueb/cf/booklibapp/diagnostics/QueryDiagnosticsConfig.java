@@ -0,0 +1,51 @@
+package gr.aueb.cf.booklibapp.diagnostics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Wires {@link QueryDiagnostics} into Hibernate and the repository proxies. Nothing is
+ * installed, and Hibernate statistics stay off, unless {@code diagnostics.queries.enabled}
+ * is set (the {@code diagnostics} profile).
+ */
+@Configuration
+public class QueryDiagnosticsConfig {
+
+    private static final String ENABLED_PROPERTY = "diagnostics.queries.enabled";
+
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(QueryDiagnostics diagnostics) {
+        return properties -> {
+            if (diagnostics.isEnabled()) {
+                properties.put(AvailableSettings.STATEMENT_INSPECTOR, new OriginTrackingStatementInspector(diagnostics));
+                properties.putIfAbsent(AvailableSettings.GENERATE_STATISTICS, "true");     // An explicit setting wins
+            }
+        };
+    }
+
+    // Static so that it does not force early initialization of this configuration
+    @Bean
+    public static BeanPostProcessor repositoryOriginPostProcessor(ObjectProvider<QueryDiagnostics> diagnostics,
+                                                                  Environment environment) {
+        boolean enabled = environment.getProperty(ENABLED_PROPERTY, Boolean.class, false);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                if (enabled && bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(new RepositoryOriginInterceptor(
+                                            repositoryInformation.getRepositoryInterface(), diagnostics))));
+                }
+                return bean;
+            }
+        };
+    }
+}
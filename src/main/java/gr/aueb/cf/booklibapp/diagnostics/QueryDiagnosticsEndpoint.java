@@ -0,0 +1,66 @@
+package gr.aueb.cf.booklibapp.diagnostics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/queries}: Hibernate statistics, statement counts per repository
+ * method, recent slow repository calls and recent requests over the statement budget.
+ */
+@Component
+@Endpoint(id = "queries")
+public class QueryDiagnosticsEndpoint {
+
+    private final QueryDiagnostics diagnostics;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public QueryDiagnosticsEndpoint(QueryDiagnostics diagnostics, EntityManagerFactory entityManagerFactory) {
+        this.diagnostics = diagnostics;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @ReadOperation
+    public Map<String, Object> queries() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("hibernate", hibernateStatistics());
+        report.put("statementsByOrigin", diagnostics.getStatementsByOrigin());
+        report.put("slowRepositoryCalls", diagnostics.getSlowCalls());
+        report.put("overBudgetRequests", diagnostics.getOverBudgetRequests());
+        return report;
+    }
+
+    private Map<String, Object> hibernateStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("enabled", statistics.isStatisticsEnabled());
+        summary.put("statementsPrepared", statistics.getPrepareStatementCount());
+        summary.put("queriesExecuted", statistics.getQueryExecutionCount());
+        summary.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        summary.put("slowestQueryMillis", statistics.getQueryExecutionMaxTime());
+        summary.put("entityLoads", statistics.getEntityLoadCount());
+        summary.put("entityFetches", statistics.getEntityFetchCount());
+        summary.put("collectionLoads", statistics.getCollectionLoadCount());
+        summary.put("collectionFetches", statistics.getCollectionFetchCount());
+
+        Map<String, Long> loadsByEntity = new LinkedHashMap<>();
+        Arrays.stream(statistics.getEntityNames())
+                .forEach(name -> loadsByEntity.put(name, statistics.getEntityStatistics(name).getLoadCount()));
+        summary.put("entityLoadsByType", loadsByEntity);
+
+        Map<String, Long> fetchesByRole = new LinkedHashMap<>();
+        Arrays.stream(statistics.getCollectionRoleNames())
+                .forEach(role -> fetchesByRole.put(role, statistics.getCollectionStatistics(role).getFetchCount()));
+        summary.put("collectionFetchesByRole", fetchesByRole);
+        return summary;
+    }
+}
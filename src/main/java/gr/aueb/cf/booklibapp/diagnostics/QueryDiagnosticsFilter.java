@@ -0,0 +1,64 @@
+package gr.aueb.cf.booklibapp.diagnostics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Scopes query statistics to a request and logs a warning when the request issued more
+ * statements than {@code diagnostics.queries.statement-budget}. Statements issued on
+ * other threads (e.g. reactive schedulers) are not attributed to the request.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)      // Around the security filters, which load the principal
+public class QueryDiagnosticsFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryDiagnosticsFilter.class);
+
+    private final QueryDiagnostics diagnostics;
+
+    @Autowired
+    public QueryDiagnosticsFilter(QueryDiagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !diagnostics.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        RequestQueryStats stats = diagnostics.beginRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            diagnostics.endRequest();
+            if (stats.getStatements() > diagnostics.getStatementBudget()) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                String label = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+                diagnostics.onOverBudget(label, stats);
+                LOGGER.warn("{} issued {} SQL statements (budget {}): by origin {}, entity loads {}, collection fetches {}",
+                        label, stats.getStatements(), diagnostics.getStatementBudget(),
+                        stats.getStatementsByOrigin(), stats.getEntityLoads(), stats.getCollectionFetches());
+            }
+        }
+    }
+}
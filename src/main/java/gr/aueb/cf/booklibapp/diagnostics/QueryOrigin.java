@@ -0,0 +1,73 @@
+package gr.aueb.cf.booklibapp.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tracks, per thread, the repository method currently executing, so that each SQL
+ * statement can be attributed to the call that issued it.
+ */
+public final class QueryOrigin {
+
+    static final String UNKNOWN = "(no repository)";
+    private static final int MAX_CAPTURED_STATEMENTS = 5;
+    private static final ThreadLocal<Frame> CURRENT = new ThreadLocal<>();
+
+    private QueryOrigin() {
+    }
+
+    static Frame enter(String origin) {
+        Frame frame = new Frame(origin, CURRENT.get());
+        CURRENT.set(frame);
+        return frame;
+    }
+
+    static void exit(Frame frame) {
+        if (frame.parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(frame.parent);
+        }
+    }
+
+    static Frame current() {
+        return CURRENT.get();
+    }
+
+    static final class Frame {
+        private final String origin;
+        private final Frame parent;
+        private int statements;
+        private List<String> sql;
+
+        private Frame(String origin, Frame parent) {
+            this.origin = origin;
+            this.parent = parent;
+        }
+
+        void onStatement(String statement) {
+            for (Frame frame = this; frame != null; frame = frame.parent) {
+                frame.statements++;
+                if (frame.sql == null) {
+                    frame.sql = new ArrayList<>(MAX_CAPTURED_STATEMENTS);
+                }
+                if (frame.sql.size() < MAX_CAPTURED_STATEMENTS) {
+                    frame.sql.add(statement);
+                }
+            }
+        }
+
+        String getOrigin() {
+            return origin;
+        }
+
+        int getStatements() {
+            return statements;
+        }
+
+        List<String> getSql() {
+            return sql == null ? Collections.emptyList() : sql;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package gr.aueb.cf.booklibapp.diagnostics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Marks the repository method being invoked as the origin of the SQL it issues and
+ * times the call.
+ */
+class RepositoryOriginInterceptor implements MethodInterceptor {
+
+    private final String repositoryName;
+    private final ObjectProvider<QueryDiagnostics> diagnostics;
+
+    RepositoryOriginInterceptor(Class<?> repositoryInterface, ObjectProvider<QueryDiagnostics> diagnostics) {
+        this.repositoryName = repositoryInterface.getSimpleName();
+        this.diagnostics = diagnostics;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        QueryOrigin.Frame frame = QueryOrigin.enter(repositoryName + "." + invocation.getMethod().getName());
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            QueryOrigin.exit(frame);
+            QueryDiagnostics queryDiagnostics = diagnostics.getIfAvailable();
+            if (queryDiagnostics != null) {
+                queryDiagnostics.onRepositoryCall(frame, System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package gr.aueb.cf.booklibapp.diagnostics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Statements, entity loads and collection fetches issued while serving one request.
+ * Confined to the request thread.
+ */
+public class RequestQueryStats {
+
+    private int statements;
+    private final Map<String, Integer> statementsByOrigin = new LinkedHashMap<>();
+    private final Map<String, Integer> entityLoads = new LinkedHashMap<>();
+    private final Map<String, Integer> collectionFetches = new LinkedHashMap<>();
+
+    void onStatement(String origin) {
+        statements++;
+        statementsByOrigin.merge(origin, 1, Integer::sum);
+    }
+
+    void onEntityLoad(String entity) {
+        entityLoads.merge(entity, 1, Integer::sum);
+    }
+
+    void onCollectionFetch(String role) {
+        collectionFetches.merge(role, 1, Integer::sum);
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public Map<String, Integer> getStatementsByOrigin() {
+        return statementsByOrigin;
+    }
+
+    public Map<String, Integer> getEntityLoads() {
+        return entityLoads;
+    }
+
+    public Map<String, Integer> getCollectionFetches() {
+        return collectionFetches;
+    }
+}
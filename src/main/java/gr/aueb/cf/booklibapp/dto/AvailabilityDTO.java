@@ -0,0 +1,13 @@
+package gr.aueb.cf.booklibapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AvailabilityDTO {
+    private Boolean usernameAvailable;      // Null when no username was checked
+    private Boolean emailAvailable;         // Null when no email was checked
+}
@@ -0,0 +1,17 @@
+package gr.aueb.cf.booklibapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FavoriteBookDTO {
+    private String id;
+    private String title;
+    private String smallThumbnail;
+    private Instant favoritedAt;
+}
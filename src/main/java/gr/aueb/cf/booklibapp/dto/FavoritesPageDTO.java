@@ -0,0 +1,15 @@
+package gr.aueb.cf.booklibapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FavoritesPageDTO {
+    private List<FavoriteBookDTO> items;
+    private String nextCursor;      // Null on the last page
+}
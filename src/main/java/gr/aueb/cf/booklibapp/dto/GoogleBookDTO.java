@@ -1,13 +1,54 @@
 package gr.aueb.cf.booklibapp.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
 @Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @AllArgsConstructor
 @NoArgsConstructor
 public class GoogleBookDTO {
     private String id;
     private VolumeInfoDTO volumeInfo;
+
+    /**
+     * Deep copy, for books that are kept and handed out to more than one caller. The DTOs
+     * are mutable, so no caller may get an instance another one can still change.
+     */
+    public static GoogleBookDTO copyOf(GoogleBookDTO book) {
+        if (book == null) {
+            return null;
+        }
+        VolumeInfoDTO info = book.getVolumeInfo();
+        if (info == null) {
+            return new GoogleBookDTO(book.getId(), null);
+        }
+        ImageLinksDTO links = info.getImageLinks();
+        return new GoogleBookDTO(book.getId(), new VolumeInfoDTO(
+                info.getTitle(),
+                copyOfStrings(info.getAuthors()),
+                info.getPublisher(),
+                info.getPublishedDate(),
+                info.getDescription(),
+                info.getIndustryIdentifiers() == null ? null : info.getIndustryIdentifiers().stream()
+                        .map(id -> id == null ? null : new IndustryIdentifierDTO(id.getType(), id.getIdentifier()))
+                        .collect(Collectors.toList()),
+                info.getPageCount(),
+                copyOfStrings(info.getCategories()),
+                links == null ? null : new ImageLinksDTO(links.getSmallThumbnail(), links.getThumbnail())));
+    }
+
+    public static List<GoogleBookDTO> copyOf(List<GoogleBookDTO> books) {
+        return books.stream().map(GoogleBookDTO::copyOf).collect(Collectors.toList());
+    }
+
+    private static List<String> copyOfStrings(List<String> values) {
+        return values == null ? null : new ArrayList<>(values);
+    }
 }
@@ -10,5 +10,6 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 public class GoogleBooksSearchResponse {
+    private Integer totalItems;
     private List<GoogleBookDTO> items;
 }
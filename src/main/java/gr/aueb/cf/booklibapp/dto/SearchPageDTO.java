@@ -0,0 +1,16 @@
+package gr.aueb.cf.booklibapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchPageDTO {
+    private List<GoogleBookDTO> items;
+    private String nextCursor;      // Null on the last page
+    private Integer totalItems;
+}
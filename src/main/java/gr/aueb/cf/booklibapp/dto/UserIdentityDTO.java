@@ -0,0 +1,14 @@
+package gr.aueb.cf.booklibapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserIdentityDTO {
+    private Long id;
+    private String username;
+    private String email;
+}
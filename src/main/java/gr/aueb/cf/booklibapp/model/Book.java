@@ -25,7 +25,8 @@ public class Book {
     @Column(name = "THUMBNAIL_URL", length = 512, nullable = true)
     private String smallThumbnail;
 
-    @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    // FAVORITED_AT and its index cannot be mapped on a join table, see V4__favorited_at.sql
+    @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @JoinTable(
             name = "BOOKS_USERS",
             joinColumns = @JoinColumn(name = "BOOK_ID", referencedColumnName = "ID"),
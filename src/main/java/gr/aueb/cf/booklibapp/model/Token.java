@@ -6,12 +6,17 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
+import java.time.Instant;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "IDX_TOKEN_EXPIRES_AT", columnList = "EXPIRES_AT"),          // Retention: expired rows
+        @Index(name = "IDX_TOKEN_USER_EPOCH", columnList = "user_id, epoch")       // Retention: superseded rows of a user
+})
 public class Token {
 
     @Id
@@ -28,6 +33,12 @@ public class Token {
 
     public boolean expired;
 
+    // Token epoch of the user when the token was issued
+    public int epoch;
+
+    @Column(name = "EXPIRES_AT")
+    public Instant expiresAt;
+
     @Override
     public String toString() {
         return "Token{" +
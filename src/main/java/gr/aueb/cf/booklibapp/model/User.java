@@ -18,8 +18,13 @@ import java.util.*;
 @AllArgsConstructor
 @Entity
 @Table(name = "USERS")
+@NamedEntityGraph(name = User.FAVORITES_GRAPH, attributeNodes = @NamedAttributeNode("favoriteBooks"))
 public class User implements UserDetails {
 
+    // Fetch plans, the authentication principal itself is loaded through UserRepository.findPrincipalByEmail
+    public static final String FAVORITES_GRAPH = "User.favorites";
+
+
     @Id
     @Column(name = "ID")
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -49,10 +54,14 @@ public class User implements UserDetails {
     @Enumerated(EnumType.STRING)
     private Role role;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "user", cascade = CascadeType.ALL)
+    // Bumped in bulk by UserRepository.incrementTokenEpoch, never written through the entity
+    @Column(name = "TOKEN_EPOCH", nullable = false, updatable = false)
+    private int tokenEpoch;
+
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "user", cascade = CascadeType.ALL)
     private List<Token> tokens;
 
-    @ManyToMany(fetch = FetchType.EAGER, mappedBy = "favoritedByUsers", cascade = CascadeType.ALL)
+    @ManyToMany(fetch = FetchType.LAZY, mappedBy = "favoritedByUsers", cascade = CascadeType.ALL)
     private Set<Book> favoriteBooks = new HashSet<>();
 
     @Override
@@ -0,0 +1,104 @@
+package gr.aueb.cf.booklibapp.reactive;
+
+import gr.aueb.cf.booklibapp.auth.AuthenticationResponse;
+import gr.aueb.cf.booklibapp.dto.UserLoginDTO;
+import gr.aueb.cf.booklibapp.dto.UserRegisterDTO;
+import gr.aueb.cf.booklibapp.service.UserServiceImpl;
+import gr.aueb.cf.booklibapp.validation.UserValidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+/**
+ * WebFlux counterpart of {@link gr.aueb.cf.booklibapp.controllers.AuthController}. Registration,
+ * login and refresh write Token and User rows through JPA, whose generated ids R2DBC cannot
+ * reproduce, so those calls run on the blocking scheduler.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/auth")
+public class ReactiveAuthController {
+
+    private final UserServiceImpl userService;
+    private final UserValidator userValidator;
+    private final Scheduler blockingScheduler;
+
+    @Autowired
+    public ReactiveAuthController(UserServiceImpl userService, UserValidator userValidator, @Qualifier("blockingScheduler") Scheduler blockingScheduler) {
+        this.userService = userService;
+        this.userValidator = userValidator;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<?>> register(@RequestBody UserRegisterDTO registerDto) {
+        return blocking(() -> {
+            BindingResult result = new BeanPropertyBindingResult(registerDto, "userRegisterDTO");
+            userValidator.validate(registerDto, result);
+            if (result.hasErrors()) {
+                Map<String, String> fieldErrors = result.getFieldErrors().stream()
+                        .collect(Collectors.toMap(
+                                FieldError::getField,
+                                fieldError -> Optional.ofNullable(fieldError.getDefaultMessage()).orElse("Default error message")
+                        ));
+
+                Map<String, Object> responseBody = new HashMap<>();
+                responseBody.put("message", "Validation failed");
+                responseBody.put("errors", fieldErrors);
+
+                return ResponseEntity.badRequest().body(responseBody);
+            }
+            return ResponseEntity.ok(userService.registerUser(registerDto));
+        });
+    }
+
+    @PostMapping("/login")
+    public Mono<ResponseEntity<AuthenticationResponse>> login(@RequestBody UserLoginDTO loginDTO) {
+        return blocking(() -> ResponseEntity.ok(userService.authenticateUser(loginDTO)));
+    }
+
+    @PostMapping("/refresh-token")
+    public Mono<ResponseEntity<AuthenticationResponse>> refreshToken(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader) {
+        return blocking(() -> userService.refreshToken(authHeader)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.ok().build()));
+    }
+
+    @GetMapping("/availability")
+    public Mono<ResponseEntity<?>> availability(@RequestParam(required = false) String username,
+                                                @RequestParam(required = false) String email) {
+        if ((username == null || username.isBlank()) && (email == null || email.isBlank())) {
+            return Mono.just(ResponseEntity.badRequest().body("Provide a username or an email to check."));
+        }
+        return blocking(() -> ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(userService.checkAvailability(username, email)));
+    }
+
+    @GetMapping("/current-user")
+    public ResponseEntity<?> getCurrentUser(Principal principal) {
+        String username = principal.getName();
+        return ResponseEntity.ok().body("Current user is: " + username);
+    }
+
+    private <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(blockingScheduler);
+    }
+}
@@ -0,0 +1,97 @@
+package gr.aueb.cf.booklibapp.reactive;
+
+import gr.aueb.cf.booklibapp.security.UserPrincipal;
+import gr.aueb.cf.booklibapp.security.jwt.JwtService;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebFlux counterpart of {@link gr.aueb.cf.booklibapp.security.jwt.JwtAuthFilter}. The principal
+ * and token epoch come from their caches, or from R2DBC on a miss. Like the rate-limit filter,
+ * it is created by {@link ReactiveSecurityConfig} so that it only runs inside the security chain.
+ */
+public class ReactiveJwtAuthFilter implements WebFilter {
+
+    private static final String PUBLIC_PATH_PREFIX = "/api/auth/";
+    private static final String CURRENT_USER_PATH = "/api/auth/current-user";
+    private static final String ACTUATOR_PATH_PREFIX = "/actuator/";
+
+    private final JwtService jwtService;
+    private final ReactiveUserService userService;
+    private final Timer authenticatedTimer;
+    private final Timer rejectedTimer;
+    private final Timer invalidTimer;
+
+    public ReactiveJwtAuthFilter(JwtService jwtService, ReactiveUserService userService, MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.userService = userService;
+        this.authenticatedTimer = verificationTimer(meterRegistry, "authenticated");
+        this.rejectedTimer = verificationTimer(meterRegistry, "rejected");
+        this.invalidTimer = verificationTimer(meterRegistry, "invalid");
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (path.startsWith(PUBLIC_PATH_PREFIX) && !path.equals(CURRENT_USER_PATH)
+                || path.startsWith(ACTUATOR_PATH_PREFIX)) {
+            return chain.filter(exchange);
+        }
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return chain.filter(exchange);
+        }
+
+        long start = System.nanoTime();
+        Claims claims;
+        try {
+            claims = jwtService.resolveClaims(authHeader.substring(7));
+        } catch (RuntimeException e) {
+            invalidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return chain.filter(exchange);                  // Left unauthenticated, the entry point answers 403
+        }
+        Long userId = jwtService.extractUserId(claims);
+        Integer tokenEpoch = jwtService.extractTokenEpoch(claims);
+        if (claims.getSubject() == null || userId == null || tokenEpoch == null) {
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return chain.filter(exchange);
+        }
+
+        return userService.findPrincipal(claims.getSubject())
+                .filterWhen(principal -> jwtService.isTokenValid(claims, principal)
+                        ? userService.isTokenEpochCurrent(userId, tokenEpoch)
+                        : Mono.just(false))
+                .map(principal -> {
+                    authenticatedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    return principal;
+                })
+                .switchIfEmpty(Mono.fromRunnable(() -> rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)))
+                .map(ReactiveJwtAuthFilter::authentication)
+                .flatMap(authentication -> chain.filter(exchange)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication))
+                        .thenReturn(true))
+                .switchIfEmpty(Mono.defer(() -> chain.filter(exchange).thenReturn(false)))
+                .then();
+    }
+
+    private static UsernamePasswordAuthenticationToken authentication(UserPrincipal principal) {
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    private static Timer verificationTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("booklib.jwt.verification")
+                .description("Time to verify a bearer token and load its principal")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,75 @@
+package gr.aueb.cf.booklibapp.reactive;
+
+import gr.aueb.cf.booklibapp.security.ratelimit.RateLimitPolicy;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebFlux counterpart of {@link gr.aueb.cf.booklibapp.security.ratelimit.RateLimitFilter}.
+ * Created by {@link ReactiveSecurityConfig} rather than declared as a bean: WebFlux runs every
+ * WebFilter bean on its own as well, which would take two permits per request.
+ */
+public class ReactiveRateLimitFilter implements WebFilter {
+
+    private static final byte[] REJECTION = "Too many requests, please retry later.".getBytes(StandardCharsets.UTF_8);
+
+    private final RateLimitPolicy policy;
+
+    public ReactiveRateLimitFilter(RateLimitPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (!policy.appliesTo(path)) {
+            return chain.filter(exchange);
+        }
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .map(ReactiveRateLimitFilter::principalName)
+                .defaultIfEmpty("")
+                .flatMap(principal -> {
+                    long wait = policy.tryAcquire(path, principal.isEmpty() ? null : principal, remoteAddress(exchange));
+                    return wait == 0 ? chain.filter(exchange) : reject(exchange.getResponse(), wait);
+                });
+    }
+
+    private static Mono<Void> reject(ServerHttpResponse response, long waitNanos) {
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+        response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+        DataBuffer body = response.bufferFactory().wrap(REJECTION);
+        return response.writeWith(Mono.just(body));
+    }
+
+    private static String principalName(Authentication authentication) {
+        if (authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return authentication.getName();
+        }
+        return "";
+    }
+
+    private static String remoteAddress(ServerWebExchange exchange) {
+        InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        if (address == null) {
+            return "unknown";
+        }
+        return address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString();
+    }
+}
@@ -0,0 +1,115 @@
+package gr.aueb.cf.booklibapp.reactive;
+
+import gr.aueb.cf.booklibapp.security.ScrapeAccess;
+import gr.aueb.cf.booklibapp.security.jwt.JwtService;
+import gr.aueb.cf.booklibapp.security.ratelimit.RateLimitPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.authentication.AuthenticationEventPublisher;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.ReactiveAuthenticationManagerAdapter;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+/**
+ * WebFlux counterpart of {@link gr.aueb.cf.booklibapp.security.SecurityConfig}, with the same
+ * access rules.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+
+    private final ReactiveJwtAuthFilter jwtAuthFilter;
+    private final ReactiveRateLimitFilter rateLimitFilter;
+    private final ScrapeAccess scrapeAccess;
+
+    @Autowired
+    public ReactiveSecurityConfig(JwtService jwtService, ReactiveUserService userService, RateLimitPolicy rateLimitPolicy,
+                                  MeterRegistry meterRegistry, ScrapeAccess scrapeAccess) {
+        this.jwtAuthFilter = new ReactiveJwtAuthFilter(jwtService, userService, meterRegistry);    // Not beans, see ReactiveRateLimitFilter
+        this.rateLimitFilter = new ReactiveRateLimitFilter(rateLimitPolicy);
+        this.scrapeAccess = scrapeAccess;
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        return http
+                .cors().configurationSource(reactiveCorsConfigurationSource())
+                .and()
+                .csrf().disable()
+                .httpBasic().disable()
+                .formLogin().disable()
+                .logout().disable()
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())   // Stateless
+                .exceptionHandling().authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN))
+                .and()
+                .authorizeExchange()
+                .pathMatchers("/api/auth/**").permitAll()
+                .pathMatchers("/actuator/health").permitAll()
+                .pathMatchers("/actuator/prometheus").access((authentication, context) -> {
+                    ServerHttpRequest request = context.getExchange().getRequest();
+                    return Mono.just(new AuthorizationDecision(isLoopback(request.getRemoteAddress())
+                            || scrapeAccess.isScraper(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION))));
+                })
+                .pathMatchers("/actuator/**").access((authentication, context) ->
+                        Mono.just(new AuthorizationDecision(isLoopback(context.getExchange().getRequest().getRemoteAddress()))))
+                .anyExchange().authenticated()
+                .and()
+                .addFilterAt(jwtAuthFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .addFilterAfter(rateLimitFilter, SecurityWebFiltersOrder.AUTHENTICATION)     // Keyed by the resolved principal
+                .build();
+    }
+
+    // AuthenticationConfiguration is servlet-only, so the login path's manager is assembled here with the same provider and events
+    @Bean
+    public AuthenticationManager authenticationManager(AuthenticationProvider authenticationProvider,
+                                                       AuthenticationEventPublisher authenticationEventPublisher) {
+        ProviderManager providerManager = new ProviderManager(authenticationProvider);
+        providerManager.setAuthenticationEventPublisher(authenticationEventPublisher);
+        return providerManager;
+    }
+
+    // Also keeps Boot from creating its default in-memory user
+    @Bean
+    public ReactiveAuthenticationManager reactiveAuthenticationManager(AuthenticationManager authenticationManager) {
+        return new ReactiveAuthenticationManagerAdapter(authenticationManager);
+    }
+
+    @Bean
+    CorsConfigurationSource reactiveCorsConfigurationSource() {
+        CorsConfiguration config = new CorsConfiguration();
+        config.setAllowedOrigins(Arrays.asList("http://localhost:4200"));
+        config.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE"));
+        config.setAllowedHeaders(Arrays.asList("authorization", "content-type", "x-auth-token"));
+        config.setExposedHeaders(Arrays.asList("x-auth-token"));
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", config);
+        return source;
+    }
+
+    private static boolean isLoopback(InetSocketAddress address) {
+        return address != null && address.getAddress() != null && address.getAddress().isLoopbackAddress();
+    }
+}
@@ -0,0 +1,137 @@
+package gr.aueb.cf.booklibapp.reactive;
+
+import gr.aueb.cf.booklibapp.dto.FavoritesPageDTO;
+import gr.aueb.cf.booklibapp.dto.UserDTO;
+import gr.aueb.cf.booklibapp.dto.UserProfileDTO;
+import gr.aueb.cf.booklibapp.dto.UserUpdateDTO;
+import gr.aueb.cf.booklibapp.security.UserPrincipal;
+import gr.aueb.cf.booklibapp.service.GoogleBooksService;
+import gr.aueb.cf.booklibapp.service.exceptions.PasswordHashingBusyException;
+import gr.aueb.cf.booklibapp.service.quota.QuotaPriority;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import javax.xml.bind.ValidationException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * WebFlux counterpart of {@link gr.aueb.cf.booklibapp.controllers.UserController}, with the
+ * same endpoints and response bodies, served from {@link ReactiveUserService}.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/users")
+public class ReactiveUserController {
+
+    private final ReactiveUserService userService;
+    private final GoogleBooksService booksService;
+
+    @Autowired
+    public ReactiveUserController(ReactiveUserService userService, GoogleBooksService booksService) {
+        this.userService = userService;
+        this.booksService = booksService;
+    }
+
+    @GetMapping("/{userId}/favorites")
+    public Mono<ResponseEntity<UserDTO>> getCurrentUserWithFavorites(@AuthenticationPrincipal UserPrincipal principal) {
+        return userService.getUserWithFavorites(principal.getUsername())
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+    }
+
+    @GetMapping("/favorites")
+    public Mono<ResponseEntity<FavoritesPageDTO>> getFavoritesPage(@AuthenticationPrincipal UserPrincipal principal,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(defaultValue = "20") int size) {
+        return userService.getFavoritesPage(principal.getId(), cursor, size)
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/favorites/count")
+    public Mono<ResponseEntity<Map<String, Long>>> countFavorites(@AuthenticationPrincipal UserPrincipal principal) {
+        return userService.countFavorites(principal.getId())
+                .map(count -> ResponseEntity.ok(Collections.singletonMap("count", count)));
+    }
+
+    @GetMapping("/profile")
+    public Mono<ResponseEntity<UserProfileDTO>> getUserProfile(@AuthenticationPrincipal UserPrincipal principal) {
+        return userService.getProfile(principal.getUsername())
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found")))
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/{userId}/favorites/{bookId}")
+    public Mono<ResponseEntity<Void>> addBookToFavorites(@PathVariable("userId") String userId, @PathVariable("bookId") String bookId,
+                                                         @AuthenticationPrincipal UserPrincipal principal) {
+        return userService.findFavoriteBookIds(principal.getUsername())
+                .flatMap(favoriteIds -> favoriteIds.contains(bookId)
+                        ? Mono.just(false)
+                        : booksService.findBookById(bookId, QuotaPriority.FAVORITE)
+                        .flatMap(book -> userService.addFavorite(principal.getId(), book)))
+                .map(added -> added
+                        ? ResponseEntity.ok().<Void>build()
+                        : ResponseEntity.status(HttpStatus.CONFLICT).<Void>build());
+    }
+
+    @DeleteMapping("/{userId}/remove-from-favorites/{bookId}")
+    public Mono<ResponseEntity<Void>> removeBookFromFavorites(@PathVariable String userId, @PathVariable String bookId,
+                                                              @AuthenticationPrincipal UserPrincipal principal) {
+        return userService.removeFavorite(principal.getId(), bookId)
+                .map(removed -> removed
+                        ? ResponseEntity.ok().<Void>build()
+                        : ResponseEntity.notFound().<Void>build());
+    }
+
+    @PutMapping(value = "/update", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Map<String, String>>> updateUserDetails(@Valid @RequestBody UserUpdateDTO userUpdateDTO,
+                                                                       @AuthenticationPrincipal UserPrincipal principal) {
+        return userService.updateUserDetails(principal.getUsername(), userUpdateDTO)
+                .thenReturn(ResponseEntity.ok().body(Collections.singletonMap("message", "User profile was updated successfully.")))
+                .onErrorResume(e -> !(e instanceof PasswordHashingBusyException),   // 429 with Retry-After from GlobalExceptionHandler
+                        e -> Mono.just(updateFailure(e)));
+    }
+
+    @DeleteMapping("/delete")
+    public Mono<ResponseEntity<Map<String, String>>> deleteUser(@AuthenticationPrincipal UserPrincipal principal) {
+        return userService.deleteUser(principal.getUsername())
+                .thenReturn(ResponseEntity.ok().body(Collections.singletonMap("message", "User account deleted successfully.")))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Collections.singletonMap("message", "An error occurred while deleting the user account."))));
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, Object>> handleBindException(WebExchangeBindException ex) {
+        Map<String, String> fieldErrors = ex.getFieldErrors().stream()
+                .collect(Collectors.toMap(
+                        FieldError::getField,
+                        fieldError -> Optional.ofNullable(fieldError.getDefaultMessage()).orElse("Default error message")
+                ));
+
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("message", "Validation failed");
+        responseBody.put("errors", fieldErrors);
+
+        return ResponseEntity.badRequest().body(responseBody);
+    }
+
+    private static ResponseEntity<Map<String, String>> updateFailure(Throwable e) {
+        if (e instanceof ValidationException) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("message", e.getMessage()));
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.singletonMap("message", "An unexpected error occurred."));
+    }
+}
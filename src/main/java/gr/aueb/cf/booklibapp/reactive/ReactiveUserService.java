@@ -0,0 +1,222 @@
+package gr.aueb.cf.booklibapp.reactive;
+
+import gr.aueb.cf.booklibapp.dto.FavoriteBookDTO;
+import gr.aueb.cf.booklibapp.dto.FavoritesPageDTO;
+import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
+import gr.aueb.cf.booklibapp.dto.ImageLinksDTO;
+import gr.aueb.cf.booklibapp.dto.UserDTO;
+import gr.aueb.cf.booklibapp.dto.UserProfileDTO;
+import gr.aueb.cf.booklibapp.dto.UserUpdateDTO;
+import gr.aueb.cf.booklibapp.reactive.repository.ReactiveBookRepository;
+import gr.aueb.cf.booklibapp.reactive.repository.ReactiveFavoriteRepository;
+import gr.aueb.cf.booklibapp.reactive.repository.ReactiveTokenRepository;
+import gr.aueb.cf.booklibapp.reactive.repository.ReactiveUserRepository;
+import gr.aueb.cf.booklibapp.reactive.repository.UserRow;
+import gr.aueb.cf.booklibapp.security.PrincipalCache;
+import gr.aueb.cf.booklibapp.security.UserPrincipal;
+import gr.aueb.cf.booklibapp.security.jwt.TokenEpochService;
+import gr.aueb.cf.booklibapp.service.FavoriteBookIds;
+import gr.aueb.cf.booklibapp.service.FavoritesCursor;
+import gr.aueb.cf.booklibapp.service.UserServiceImpl;
+import gr.aueb.cf.booklibapp.service.uniqueness.UniquenessService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import javax.xml.bind.ValidationException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * R2DBC counterpart of the favorites and profile parts of {@link UserServiceImpl}, for
+ * the reactive runtime. Nothing here blocks, except password hashing on profile updates.
+ */
+@Service
+@Primary
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserService implements FavoriteBookIds {
+
+    private static final int MAX_FAVORITES_PAGE_SIZE = 100;
+
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveBookRepository bookRepository;
+    private final ReactiveFavoriteRepository favoriteRepository;
+    private final ReactiveTokenRepository tokenRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final PrincipalCache principalCache;
+    private final TokenEpochService tokenEpochService;
+    private final UniquenessService uniquenessService;
+    private final PasswordEncoder passwordEncoder;
+    private final Scheduler blockingScheduler;
+
+    @Autowired
+    public ReactiveUserService(ReactiveUserRepository userRepository, ReactiveBookRepository bookRepository,
+                               ReactiveFavoriteRepository favoriteRepository, ReactiveTokenRepository tokenRepository,
+                               TransactionalOperator r2dbcTransactionalOperator, PrincipalCache principalCache,
+                               TokenEpochService tokenEpochService, UniquenessService uniquenessService,
+                               PasswordEncoder passwordEncoder, @Qualifier("blockingScheduler") Scheduler blockingScheduler) {
+        this.userRepository = userRepository;
+        this.bookRepository = bookRepository;
+        this.favoriteRepository = favoriteRepository;
+        this.tokenRepository = tokenRepository;
+        this.transactionalOperator = r2dbcTransactionalOperator;
+        this.principalCache = principalCache;
+        this.tokenEpochService = tokenEpochService;
+        this.uniquenessService = uniquenessService;
+        this.passwordEncoder = passwordEncoder;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    /**
+     * Principal for a verified token, from {@link PrincipalCache} when present.
+     */
+    public Mono<UserPrincipal> findPrincipal(String email) {
+        return Mono.defer(() -> {
+            UserPrincipal cached = principalCache.getIfPresent(email);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return userRepository.findByEmail(email)
+                    .map(UserRow::toPrincipal)
+                    .doOnNext(principal -> principalCache.put(email, principal));
+        });
+    }
+
+    public Mono<Boolean> isTokenEpochCurrent(Long userId, int tokenEpoch) {
+        return Mono.defer(() -> {
+            Integer known = tokenEpochService.getIfKnown(userId);
+            if (known != null) {
+                return Mono.just(known == tokenEpoch);
+            }
+            return userRepository.findTokenEpochById(userId)
+                    .map(epoch -> tokenEpochService.remember(userId, epoch) == tokenEpoch)
+                    .defaultIfEmpty(false);                             // User no longer exists
+        });
+    }
+
+    @Override
+    public Mono<Set<String>> findFavoriteBookIds(String email) {
+        return favoriteRepository.findBookIdsByEmail(email)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Mono<Boolean> isFavorite(String email, String bookId) {
+        return favoriteRepository.findBookIdByEmailAndBookId(email, bookId).hasElement();
+    }
+
+    public Mono<UserDTO> getUserWithFavorites(String email) {
+        return userRepository.findByEmail(email)
+                .flatMap(user -> bookRepository.findFavoritesByUserId(user.getId())
+                        .collect(Collectors.toSet())
+                        .map(books -> new UserDTO(user.getId(), user.getUsername(), user.getEmail(), books)));
+    }
+
+    public Mono<FavoritesPageDTO> getFavoritesPage(Long userId, String cursor, int size) {
+        return Mono.defer(() -> {
+            int pageSize = Math.max(1, Math.min(size, MAX_FAVORITES_PAGE_SIZE));
+            int limit = pageSize + 1;                   // One extra row tells us whether a next page exists
+            if (cursor == null) {
+                return favoriteRepository.findFirstPage(userId, limit).collectList()
+                        .map(items -> toPage(items, pageSize));
+            }
+            FavoriteBookDTO last = FavoritesCursor.decode(cursor);
+            return favoriteRepository.findPageAfter(userId, last.getFavoritedAt(), last.getId(), limit).collectList()
+                    .map(items -> toPage(items, pageSize));
+        });
+    }
+
+    public Mono<Long> countFavorites(Long userId) {
+        return favoriteRepository.countByUserId(userId);
+    }
+
+    public Mono<UserProfileDTO> getProfile(String email) {
+        return userRepository.findByEmail(email)
+                .map(user -> new UserProfileDTO(user.getFirstname(), user.getLastname(),
+                        user.getDateOfBirth(), user.getProfilePicture()));
+    }
+
+    /**
+     * Stores the book unless another user already did, then adds it to the user's favorites.
+     * Emits false when it was already a favorite.
+     */
+    public Mono<Boolean> addFavorite(Long userId, GoogleBookDTO book) {
+        String title = book.getVolumeInfo().getTitle();
+        ImageLinksDTO imageLinks = book.getVolumeInfo().getImageLinks();
+        String smallThumbnail = imageLinks != null ? imageLinks.getSmallThumbnail() : null;
+        return bookRepository.existsById(book.getId())
+                .flatMap(exists -> exists
+                        ? Mono.just(0)
+                        : bookRepository.insert(book.getId(), title, smallThumbnail)
+                        .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(0)))   // Inserted concurrently
+                .then(favoriteRepository.insert(userId, book.getId()))
+                .map(inserted -> inserted > 0)
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(false));
+    }
+
+    public Mono<Boolean> removeFavorite(Long userId, String bookId) {
+        return favoriteRepository.delete(userId, bookId)
+                .map(deleted -> deleted > 0);
+    }
+
+    public Mono<Void> updateUserDetails(String email, UserUpdateDTO update) {
+        return userRepository.findByEmail(email)
+                .switchIfEmpty(Mono.error(() -> new UsernameNotFoundException("User not found")))
+                .flatMap(user -> newPassword(update.getPassword())
+                        .defaultIfEmpty(user.getPassword())
+                        .flatMap(password -> userRepository.updateDetails(
+                                user.getId(),
+                                StringUtils.hasText(update.getFirstname()) ? update.getFirstname() : user.getFirstname(),
+                                StringUtils.hasText(update.getLastname()) ? update.getLastname() : user.getLastname(),
+                                update.getDateOfBirth() != null ? update.getDateOfBirth() : user.getDateOfBirth(),
+                                update.getProfilePicture(),                         // A missing picture clears it
+                                password)))
+                .doOnSuccess(updated -> principalCache.invalidate(email))
+                .then();
+    }
+
+    public Mono<Void> deleteUser(String email) {
+        return userRepository.findByEmail(email)
+                .switchIfEmpty(Mono.error(() -> new UsernameNotFoundException("User not found with email: " + email)))
+                .flatMap(user -> tokenRepository.deleteByUserId(user.getId())
+                        .then(favoriteRepository.deleteByUserId(user.getId()))
+                        .then(userRepository.deleteById(user.getId()))
+                        .as(transactionalOperator::transactional)
+                        .doOnSuccess(deleted -> {
+                            uniquenessService.recordDeletion();
+                            tokenEpochService.forget(user.getId());
+                            principalCache.invalidate(email);
+                        }));
+    }
+
+    // BoundedPasswordEncoder may wait for a hashing permit, so it never runs on the event loop
+    private Mono<String> newPassword(String password) {
+        if (!StringUtils.hasText(password)) {
+            return Mono.empty();
+        }
+        if (!UserServiceImpl.PASSWORD_PATTERN.matcher(password).matches()) {
+            return Mono.error(new ValidationException("Password must contain at least one lowercase, one uppercase, one digit, and one special character."));
+        }
+        return Mono.fromCallable(() -> passwordEncoder.encode(password))
+                .subscribeOn(blockingScheduler);
+    }
+
+    private static FavoritesPageDTO toPage(List<FavoriteBookDTO> items, int pageSize) {
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            nextCursor = FavoritesCursor.encode(items.get(pageSize - 1));
+        }
+        return new FavoritesPageDTO(items, nextCursor);
+    }
+}
@@ -0,0 +1,25 @@
+package gr.aueb.cf.booklibapp.reactive.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * R2DBC mapping of the BOOKS table owned by {@link gr.aueb.cf.booklibapp.model.Book}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("books")
+public class BookRow {
+
+    @Id
+    private String id;
+    private String title;
+
+    @Column("thumbnail_url")
+    private String smallThumbnail;
+}
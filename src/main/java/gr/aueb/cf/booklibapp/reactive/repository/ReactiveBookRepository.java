@@ -0,0 +1,20 @@
+package gr.aueb.cf.booklibapp.reactive.repository;
+
+import gr.aueb.cf.booklibapp.dto.BookDTO;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveBookRepository extends ReactiveCrudRepository<BookRow, String> {
+
+    // Ids are Google's, so save() would take every new book for an update
+    @Modifying
+    @Query("INSERT INTO books (id, title, thumbnail_url) VALUES (:id, :title, :smallThumbnail)")
+    Mono<Integer> insert(String id, String title, String smallThumbnail);
+
+    @Query("SELECT b.id, b.title, b.thumbnail_url AS small_thumbnail FROM books b " +
+            "JOIN books_users f ON f.book_id = b.id WHERE f.user_id = :userId")
+    Flux<BookDTO> findFavoritesByUserId(Long userId);
+}
@@ -0,0 +1,52 @@
+package gr.aueb.cf.booklibapp.reactive.repository;
+
+import gr.aueb.cf.booklibapp.dto.FavoriteBookDTO;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Statements over the BOOKS_USERS join table. The table has a composite key, which
+ * Spring Data R2DBC cannot map, so every operation is an explicit query.
+ */
+public interface ReactiveFavoriteRepository extends Repository<BookRow, String> {
+
+    @Query("SELECT f.book_id FROM books_users f JOIN users u ON u.id = f.user_id WHERE u.email = :email")
+    Flux<String> findBookIdsByEmail(String email);
+
+    @Query("SELECT f.book_id FROM books_users f JOIN users u ON u.id = f.user_id " +
+            "WHERE u.email = :email AND f.book_id = :bookId")
+    Mono<String> findBookIdByEmailAndBookId(String email, String bookId);
+
+    @Query("SELECT b.id, b.title, b.thumbnail_url AS small_thumbnail, f.favorited_at FROM books_users f " +
+            "JOIN books b ON b.id = f.book_id WHERE f.user_id = :userId " +
+            "ORDER BY f.favorited_at DESC, f.book_id DESC LIMIT :limit")
+    Flux<FavoriteBookDTO> findFirstPage(Long userId, int limit);
+
+    // Keyset condition on (FAVORITED_AT, BOOK_ID), served by IDX_BOOKS_USERS_USER_FAVORITED_AT
+    @Query("SELECT b.id, b.title, b.thumbnail_url AS small_thumbnail, f.favorited_at FROM books_users f " +
+            "JOIN books b ON b.id = f.book_id WHERE f.user_id = :userId " +
+            "AND (f.favorited_at < :favoritedAt OR (f.favorited_at = :favoritedAt AND f.book_id < :bookId)) " +
+            "ORDER BY f.favorited_at DESC, f.book_id DESC LIMIT :limit")
+    Flux<FavoriteBookDTO> findPageAfter(Long userId, Instant favoritedAt, String bookId, int limit);
+
+    @Query("SELECT COUNT(*) FROM books_users WHERE user_id = :userId")
+    Mono<Long> countByUserId(Long userId);
+
+    // FAVORITED_AT is filled in by the database
+    @Modifying
+    @Query("INSERT INTO books_users (book_id, user_id) VALUES (:bookId, :userId)")
+    Mono<Integer> insert(Long userId, String bookId);
+
+    @Modifying
+    @Query("DELETE FROM books_users WHERE user_id = :userId AND book_id = :bookId")
+    Mono<Integer> delete(Long userId, String bookId);
+
+    @Modifying
+    @Query("DELETE FROM books_users WHERE user_id = :userId")
+    Mono<Integer> deleteByUserId(Long userId);
+}
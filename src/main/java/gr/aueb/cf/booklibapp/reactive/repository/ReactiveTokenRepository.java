@@ -0,0 +1,17 @@
+package gr.aueb.cf.booklibapp.reactive.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Statements over the TOKEN table. Tokens are issued by the JPA login path, whose ids
+ * come from Hibernate's generator; the reactive runtime only removes them.
+ */
+public interface ReactiveTokenRepository extends Repository<UserRow, Long> {
+
+    @Modifying
+    @Query("DELETE FROM token WHERE user_id = :userId")
+    Mono<Integer> deleteByUserId(Long userId);
+}
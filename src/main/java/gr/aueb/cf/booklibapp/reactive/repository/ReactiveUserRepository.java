@@ -0,0 +1,23 @@
+package gr.aueb.cf.booklibapp.reactive.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+public interface ReactiveUserRepository extends ReactiveCrudRepository<UserRow, Long> {
+
+    Mono<UserRow> findByEmail(String email);
+
+    @Query("SELECT token_epoch FROM users WHERE id = :id")
+    Mono<Integer> findTokenEpochById(Long id);
+
+    // TOKEN_EPOCH is left alone, it is only ever incremented by the login path
+    @Modifying
+    @Query("UPDATE users SET firstname = :firstname, lastname = :lastname, date_of_birth = :dateOfBirth, " +
+            "profile_picture = :profilePicture, password = :password WHERE id = :id")
+    Mono<Integer> updateDetails(Long id, String firstname, String lastname, LocalDate dateOfBirth,
+                                String profilePicture, String password);
+}
@@ -0,0 +1,36 @@
+package gr.aueb.cf.booklibapp.reactive.repository;
+
+import gr.aueb.cf.booklibapp.model.Role;
+import gr.aueb.cf.booklibapp.security.UserPrincipal;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+
+/**
+ * R2DBC mapping of the USERS table owned by {@link gr.aueb.cf.booklibapp.model.User}.
+ * Read-only: writes go through the explicit statements of {@link ReactiveUserRepository}.
+ */
+@Data
+@NoArgsConstructor
+@Table("users")
+public class UserRow {
+
+    @Id
+    private Long id;
+    private String username;
+    private String firstname;
+    private String lastname;
+    private String email;
+    private String password;
+    private LocalDate dateOfBirth;
+    private String profilePicture;
+    private String role;
+    private int tokenEpoch;
+
+    public UserPrincipal toPrincipal() {
+        return new UserPrincipal(id, email, Role.valueOf(role), password, tokenEpoch);
+    }
+}
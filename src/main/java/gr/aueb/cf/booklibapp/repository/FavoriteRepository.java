@@ -0,0 +1,51 @@
+package gr.aueb.cf.booklibapp.repository;
+
+import gr.aueb.cf.booklibapp.model.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reads over the books_users join table. FAVORITED_AT is not mapped by any entity, so
+ * these are native queries. Favorites are added and removed here too, a row at a time,
+ * so that neither side of the {@link Book#getFavoritedByUsers()} association is loaded.
+ */
+public interface FavoriteRepository extends Repository<Book, String> {
+
+    interface FavoriteRow {
+        String getId();
+        String getTitle();
+        String getSmallThumbnail();
+        Instant getFavoritedAt();
+    }
+
+    @Query(value = "SELECT b.ID AS id, b.TITLE AS title, b.THUMBNAIL_URL AS smallThumbnail, f.FAVORITED_AT AS favoritedAt " +
+            "FROM books_users f JOIN books b ON b.ID = f.BOOK_ID WHERE f.USER_ID = ?1 " +
+            "ORDER BY f.FAVORITED_AT DESC, f.BOOK_ID DESC", nativeQuery = true)
+    List<FavoriteRow> findFirstPage(Long userId, Pageable pageable);
+
+    // Keyset condition on (FAVORITED_AT, BOOK_ID), served by IDX_books_users_USER_FAVORITED_AT
+    @Query(value = "SELECT b.ID AS id, b.TITLE AS title, b.THUMBNAIL_URL AS smallThumbnail, f.FAVORITED_AT AS favoritedAt " +
+            "FROM books_users f JOIN books b ON b.ID = f.BOOK_ID WHERE f.USER_ID = ?1 " +
+            "AND (f.FAVORITED_AT < ?2 OR (f.FAVORITED_AT = ?2 AND f.BOOK_ID < ?3)) " +
+            "ORDER BY f.FAVORITED_AT DESC, f.BOOK_ID DESC", nativeQuery = true)
+    List<FavoriteRow> findPageAfter(Long userId, Instant favoritedAt, String bookId, Pageable pageable);
+
+    @Query(value = "SELECT COUNT(*) FROM books_users WHERE USER_ID = ?1", nativeQuery = true)
+    long countByUserId(Long userId);
+
+    // One join row, without loading either side of the association. FAVORITED_AT is filled in by the database
+    @Modifying
+    @Query(value = "INSERT INTO books_users (BOOK_ID, USER_ID) " +
+            "SELECT b.ID, u.ID FROM books b, users u WHERE b.ID = ?2 AND u.EMAIL = ?1", nativeQuery = true)
+    int insert(String email, String bookId);
+
+    @Modifying
+    @Query(value = "DELETE FROM books_users WHERE BOOK_ID = ?2 " +
+            "AND USER_ID = (SELECT u.ID FROM users u WHERE u.EMAIL = ?1)", nativeQuery = true)
+    int delete(String email, String bookId);
+}
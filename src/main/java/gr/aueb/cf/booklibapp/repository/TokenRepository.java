@@ -1,17 +1,39 @@
 package gr.aueb.cf.booklibapp.repository;
 
 import gr.aueb.cf.booklibapp.model.Token;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 public interface TokenRepository extends JpaRepository<Token, Integer> {
 
-    @Query("select t from Token t inner join User u on t.user.id = u.id " +
-            "where u.id = :id and (t.expired = false or t.revoked = false)")
-    List<Token> findAllValidTokenByUser(Long id);
+    // Range scan of IDX_TOKEN_EXPIRES_AT
+    @Query("SELECT t.id FROM Token t WHERE t.expiresAt < ?1")
+    List<Integer> findExpiredIds(Instant now, Pageable pageable);
 
-    Optional<Token> findByToken(String token);
+    // Rows issued before expiry times were recorded
+    @Query("SELECT t.id FROM Token t WHERE t.expiresAt IS NULL")
+    List<Integer> findIdsWithoutExpiry(Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Token t SET t.expiresAt = ?2 WHERE t.id IN ?1")
+    int updateExpiresAt(Collection<Integer> ids, Instant expiresAt);
+
+    // Tokens issued under an epoch the user has since moved past, served by IDX_TOKEN_USER_EPOCH
+    @Modifying
+    @Query("DELETE FROM Token t WHERE t.user.id = ?1 AND t.epoch < ?2")
+    int deleteByUserIdAndEpochBefore(Long userId, int epoch);
+
+    @Query("SELECT COUNT(t) FROM Token t JOIN t.user u " +
+            "WHERE t.expired = false AND t.revoked = false AND t.expiresAt >= ?1 AND t.epoch = u.tokenEpoch")
+    long countActive(Instant now);
+
+    @Modifying
+    @Query("DELETE FROM Token t WHERE t.id IN ?1")
+    int deleteByIdIn(Collection<Integer> ids);
 }
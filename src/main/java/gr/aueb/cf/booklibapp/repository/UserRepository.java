@@ -1,10 +1,16 @@
 package gr.aueb.cf.booklibapp.repository;
 
+import gr.aueb.cf.booklibapp.dto.UserIdentityDTO;
 import gr.aueb.cf.booklibapp.model.User;
+import gr.aueb.cf.booklibapp.security.UserPrincipal;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -12,13 +18,43 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Optional<User> findByUsername(String username);
 
-    @Query("SELECT u FROM User u LEFT JOIN FETCH u.favoriteBooks WHERE u.email = ?1")
+    @Query("SELECT new gr.aueb.cf.booklibapp.security.UserPrincipal(u.id, u.email, u.role, u.password, u.tokenEpoch) " +
+            "FROM User u WHERE u.email = ?1")
+    Optional<UserPrincipal> findPrincipalByEmail(String email);
+
+    @EntityGraph(User.FAVORITES_GRAPH)
+    @Query("SELECT u FROM User u WHERE u.email = ?1")
     Optional<User> findByEmailWithFavorites(@Param("email") String email);
 
+    @Query("SELECT b.id FROM User u JOIN u.favoriteBooks b WHERE u.email = ?1")
+    List<String> findFavoriteBookIdsByEmail(String email);
+
+    @Query("SELECT COUNT(b) > 0 FROM User u JOIN u.favoriteBooks b WHERE u.email = ?1 AND b.id = ?2")
+    boolean favoriteExists(String email, String bookId);
+
     @Query("SELECT COUNT(u) > 0 FROM User u WHERE u.username = ?1")
     boolean usernameExists(String username);
 
     @Query("SELECT COUNT(u) > 0 FROM User u WHERE u.email = ?1")
     boolean emailExists(String email);
 
+    @Query("SELECT new gr.aueb.cf.booklibapp.dto.UserIdentityDTO(u.id, u.username, u.email) " +
+            "FROM User u WHERE u.username = ?1 OR u.email = ?2")
+    List<UserIdentityDTO> findIdentitiesByUsernameOrEmail(String username, String email);
+
+    @Query("SELECT new gr.aueb.cf.booklibapp.dto.UserIdentityDTO(u.id, u.username, u.email) " +
+            "FROM User u WHERE u.id > ?1 ORDER BY u.id")
+    List<UserIdentityDTO> findIdentitiesAfter(Long id, Pageable pageable);
+
+    @Query("SELECT u.tokenEpoch FROM User u WHERE u.id = ?1")
+    Optional<Integer> findTokenEpochById(Long id);
+
+    @Modifying
+    @Query("UPDATE User u SET u.password = ?2 WHERE u.email = ?1")
+    int updatePassword(String email, String password);
+
+    @Modifying
+    @Query("UPDATE User u SET u.tokenEpoch = u.tokenEpoch + 1 WHERE u.id = ?1")
+    int incrementTokenEpoch(Long id);
+
 }
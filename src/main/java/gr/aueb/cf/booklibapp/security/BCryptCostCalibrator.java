@@ -0,0 +1,35 @@
+package gr.aueb.cf.booklibapp.security;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.time.Duration;
+
+/**
+ * Picks the BCrypt work factor whose hashing time on this machine stays within a target.
+ * Each extra cost round doubles the work, so the cost is extrapolated from a measurement
+ * at the minimum cost.
+ */
+public final class BCryptCostCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "Calibration-Password-1!";
+    private static final int SAMPLES = 3;
+
+    private BCryptCostCalibrator() {
+    }
+
+    public static int calibrate(Duration target, int minCost, int maxCost) {
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(minCost));       // Warm up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(minCost));
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double headroom = (double) target.toNanos() / Math.max(1L, best);
+        if (headroom < 1.0) {
+            return minCost;
+        }
+        int extraRounds = (int) Math.floor(Math.log(headroom) / Math.log(2));
+        return Math.min(maxCost, minCost + extraRounds);
+    }
+}
@@ -0,0 +1,92 @@
+package gr.aueb.cf.booklibapp.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import gr.aueb.cf.booklibapp.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Size and TTL bounded cache of {@link UserPrincipal} snapshots, keyed by email.
+ * Entries must be invalidated whenever the password, role or token epoch of a user changes.
+ */
+@Component
+public class PrincipalCache {
+
+    private final UserRepository userRepository;
+    private final Cache<String, UserPrincipal> cache;
+
+    @Autowired
+    public PrincipalCache(
+            UserRepository userRepository,
+            @Value("${security.principal-cache.max-size:10000}") long maxSize,
+            @Value("${security.principal-cache.ttl:PT5M}") Duration ttl
+    ) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public UserPrincipal get(String email) {
+        return cache.get(email, key -> userRepository.findPrincipalByEmail(key)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found")));
+    }
+
+    /**
+     * Cached principal without loading it, for callers that must not block.
+     */
+    public UserPrincipal getIfPresent(String email) {
+        return cache.getIfPresent(email);
+    }
+
+    public void put(String email, UserPrincipal principal) {
+        cache.put(email, principal);
+    }
+
+    public void invalidate(String email) {
+        cache.invalidate(email);
+        // A concurrent request may reload the old row before our transaction commits
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(email);
+                }
+            });
+        }
+    }
+
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+
+    public long evictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public Cache<String, UserPrincipal> getCache() {
+        return cache;
+    }
+}
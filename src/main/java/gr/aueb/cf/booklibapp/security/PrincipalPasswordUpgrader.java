@@ -0,0 +1,36 @@
+package gr.aueb.cf.booklibapp.security;
+
+import gr.aueb.cf.booklibapp.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Stores a password re-hashed with the current BCrypt cost after a successful login.
+ */
+@Service
+public class PrincipalPasswordUpgrader implements UserDetailsPasswordService {
+
+    private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+
+    @Autowired
+    public PrincipalPasswordUpgrader(UserRepository userRepository, PrincipalCache principalCache) {
+        this.userRepository = userRepository;
+        this.principalCache = principalCache;
+    }
+
+    @Transactional
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        principalCache.invalidate(user.getUsername());
+        if (user instanceof UserPrincipal) {
+            UserPrincipal principal = (UserPrincipal) user;
+            return new UserPrincipal(principal.getId(), principal.getEmail(), principal.getRole(), newPassword, principal.getTokenEpoch());
+        }
+        return user;
+    }
+}
@@ -0,0 +1,33 @@
+package gr.aueb.cf.booklibapp.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Recognizes the Prometheus scraper by the bearer token in {@code metrics.scrape-token}.
+ * Without a token configured, {@code /actuator/prometheus} is served to loopback callers only.
+ */
+@Component
+public class ScrapeAccess {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final byte[] token;
+
+    @Autowired
+    public ScrapeAccess(@Value("${metrics.scrape-token:}") String token) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public boolean isScraper(String authorizationHeader) {
+        if (token.length == 0 || authorizationHeader == null || !authorizationHeader.startsWith(BEARER_PREFIX)) {
+            return false;
+        }
+        byte[] presented = authorizationHeader.substring(BEARER_PREFIX.length()).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(token, presented);                 // Constant time
+    }
+}
@@ -1,10 +1,14 @@
 package gr.aueb.cf.booklibapp.security;
 
 import gr.aueb.cf.booklibapp.security.jwt.JwtAuthFilter;
+import gr.aueb.cf.booklibapp.security.ratelimit.RateLimitFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -14,19 +18,27 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.Arrays;
 
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableWebSecurity
 public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final AuthenticationProvider authenticationProvider;
+    private final ScrapeAccess scrapeAccess;
 
     @Autowired
-    public SecurityConfig(JwtAuthFilter jwtAuthFilter, AuthenticationProvider authenticationProvider) {
+    public SecurityConfig(JwtAuthFilter jwtAuthFilter, RateLimitFilter rateLimitFilter, AuthenticationProvider authenticationProvider,
+                          ScrapeAccess scrapeAccess) {
         this.jwtAuthFilter = jwtAuthFilter;
+        this.rateLimitFilter = rateLimitFilter;
         this.authenticationProvider = authenticationProvider;
+        this.scrapeAccess = scrapeAccess;
     }
 
     @Bean
@@ -38,13 +50,20 @@ public class SecurityConfig {
                 .disable()
                 .authorizeHttpRequests()
                 .antMatchers("/api/auth/**").permitAll()
+                .antMatchers("/actuator/health").permitAll()
+                .antMatchers("/actuator/prometheus").access((authentication, context) ->    // The host itself or the scraper's token
+                        new AuthorizationDecision(isLoopback(context.getRequest().getRemoteAddr())
+                                || scrapeAccess.isScraper(context.getRequest().getHeader(HttpHeaders.AUTHORIZATION))))
+                .antMatchers("/actuator/**").access((authentication, context) ->        // Diagnostics only from the host itself
+                        new AuthorizationDecision(isLoopback(context.getRequest().getRemoteAddr())))
                 .anyRequest().authenticated()
                 .and()
                 .sessionManagement()
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 .and()
                 .authenticationProvider(authenticationProvider)
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthFilter.class);       // Keyed by the principal JwtAuthFilter resolved
         return http.build();
     }
 
@@ -59,4 +78,12 @@ public class SecurityConfig {
         source.registerCorsConfiguration("/**", config);
         return source;
     }
+
+    private static boolean isLoopback(String address) {
+        try {
+            return InetAddress.getByName(address).isLoopbackAddress();     // Literal IP, no DNS lookup
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
 }
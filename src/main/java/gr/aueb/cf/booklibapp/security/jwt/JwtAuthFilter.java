@@ -1,7 +1,10 @@
 package gr.aueb.cf.booklibapp.security.jwt;
 
-import gr.aueb.cf.booklibapp.repository.TokenRepository;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -9,25 +12,48 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    private static final String PUBLIC_PATH_PREFIX = "/api/auth/";
+    private static final String CURRENT_USER_PATH = "/api/auth/current-user";   // Only auth endpoint that needs the principal
+    private static final String ACTUATOR_PATH_PREFIX = "/actuator/";
+    private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
+
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
-    private final TokenRepository tokenRepository;
+    private final TokenEpochService tokenEpochService;
+    private final Timer authenticatedTimer;
+    private final Timer rejectedTimer;
+    private final Timer invalidTimer;
+    private final Timer skippedTimer;
 
     @Autowired
-    public JwtAuthFilter(JwtService jwtService, UserDetailsService userDetailsService, TokenRepository tokenRepository) {
+    public JwtAuthFilter(JwtService jwtService, UserDetailsService userDetailsService, TokenEpochService tokenEpochService, MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
-        this.tokenRepository = tokenRepository;
+        this.tokenEpochService = tokenEpochService;
+        this.authenticatedTimer = verificationTimer(meterRegistry, "authenticated");
+        this.rejectedTimer = verificationTimer(meterRegistry, "rejected");       // Valid signature, stale user or epoch
+        this.invalidTimer = verificationTimer(meterRegistry, "invalid");         // Malformed, expired or forged
+        this.skippedTimer = verificationTimer(meterRegistry, "skipped");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = PATH_HELPER.getPathWithinApplication(request);   // Not the servlet path, which MockMvc leaves empty
+        return path.startsWith(PUBLIC_PATH_PREFIX) && !path.equals(CURRENT_USER_PATH)
+                || path.startsWith(ACTUATOR_PATH_PREFIX);
     }
 
     @Override
@@ -46,24 +72,42 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             return;                                                     // Filter stops user
         }
         jwt = authHeader.substring(7);
-        userEmail = jwtService.extractUsername(jwt);
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {  // If we have the user email and user is not yet authenticated
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail); // We get the user from db
-            var isTokenValid = tokenRepository.findByToken(jwt)
-                    .map(t -> !t.isExpired() && !t.isRevoked())
-                    .orElse(false);
-            if (jwtService.isTokenValid(jwt, userDetails) && isTokenValid) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
-                        null,   // Credentials
-                        userDetails.getAuthorities()
-                );
-                authToken.setDetails(
-                        new WebAuthenticationDetailsSource().buildDetails(request)
-                );
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+        long start = System.nanoTime();
+        Timer outcome = invalidTimer;
+        try {
+            final Claims claims = jwtService.resolveClaims(jwt);          // Verified once, then served from the cache
+            userEmail = claims.getSubject();
+            outcome = skippedTimer;
+            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {  // If we have the user email and user is not yet authenticated
+                outcome = rejectedTimer;
+                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail); // We get the user from db
+                Long userId = jwtService.extractUserId(claims);
+                Integer tokenEpoch = jwtService.extractTokenEpoch(claims);
+                var isTokenCurrent = userId != null && tokenEpoch != null     // Tokens without an epoch are not accepted
+                        && tokenEpochService.isCurrent(userId, tokenEpoch);
+                if (jwtService.isTokenValid(claims, userDetails) && isTokenCurrent) {
+                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                            userDetails,
+                            null,   // Credentials
+                            userDetails.getAuthorities()
+                    );
+                    authToken.setDetails(
+                            new WebAuthenticationDetailsSource().buildDetails(request)
+                    );
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                    outcome = authenticatedTimer;
+                }
             }
+        } finally {
+            outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
         filterChain.doFilter(request, response);
     }
+
+    private static Timer verificationTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("booklib.jwt.verification")
+                .description("Time to verify a bearer token and load its principal")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
 }
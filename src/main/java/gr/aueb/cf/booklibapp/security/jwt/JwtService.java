@@ -1,10 +1,12 @@
 package gr.aueb.cf.booklibapp.security.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -18,14 +20,37 @@ import java.util.function.Function;
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret-key}")
-    private String secretKey;
-
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
+    public static final String USER_ID_CLAIM = "userId";
+    public static final String TOKEN_EPOCH_CLAIM = "epoch";
+
+    private final Key signInKey;
+    private final JwtParser jwtParser;
+    private final long jwtExpiration;
+    private final long refreshExpiration;
+    private final VerifiedClaimsCache claimsCache;
+
+    @Autowired
+    public JwtService(
+            @Value("${jwt.secret-key}") String secretKey,
+            @Value("${jwt.expiration}") long jwtExpiration,
+            @Value("${jwt.refresh-token.expiration}") long refreshExpiration,
+            VerifiedClaimsCache claimsCache
+    ) {
+        // Decode the secret once; the key and the parser are immutable and thread-safe
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+        this.jwtExpiration = jwtExpiration;
+        this.refreshExpiration = refreshExpiration;
+        this.claimsCache = claimsCache;
+    }
 
-    @Value("${jwt.refresh-token.expiration}")
-    private long refreshExpiration;
+    /**
+     * Returns the verified claims of the token, checking the signature only
+     * the first time a given token is seen.
+     */
+    public Claims resolveClaims(String token) {
+        return claimsCache.get(token, this::extractAllClaims);
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -47,14 +72,28 @@ public class JwtService {
         return buildToken(extraClaims, userDetails, jwtExpiration);
     }
 
-    public String generateTokenWithUserId(UserDetails userDetails, Long userId) {
+    public String generateTokenWithUserId(UserDetails userDetails, Long userId, int tokenEpoch) {
         Map<String, Object> claims = new HashMap<>();
         if (userId != null) {
-            claims.put("userId", userId.toString());
+            claims.put(USER_ID_CLAIM, userId.toString());
         }
+        claims.put(TOKEN_EPOCH_CLAIM, tokenEpoch);
         return buildToken(claims, userDetails, jwtExpiration);
     }
 
+    public long getJwtExpiration() {
+        return jwtExpiration;
+    }
+
+    public Long extractUserId(Claims claims) {
+        String userId = claims.get(USER_ID_CLAIM, String.class);
+        return userId != null ? Long.valueOf(userId) : null;
+    }
+
+    public Integer extractTokenEpoch(Claims claims) {
+        return claims.get(TOKEN_EPOCH_CLAIM, Integer.class);
+    }
+
     public String generateRefreshToken(
             UserDetails userDetails
     ) {
@@ -72,34 +111,26 @@ public class JwtService {
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return isTokenValid(extractAllClaims(token), userDetails);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
+        return (username.equals(userDetails.getUsername())) && !isTokenExpired(claims);
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 }
@@ -0,0 +1,97 @@
+package gr.aueb.cf.booklibapp.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import gr.aueb.cf.booklibapp.repository.UserRepository;
+import gr.aueb.cf.booklibapp.service.exceptions.UserNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Keeps the current token epoch of each user. An access token is valid only while
+ * the epoch it was issued with matches the user's epoch, so revoking every token
+ * of a user is a single increment. Epochs are cached in a size and TTL bounded cache
+ * and loaded from the database whenever a user is not in it.
+ */
+@Service
+public class TokenEpochService {
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Integer> epochs;
+
+    @Autowired
+    public TokenEpochService(
+            UserRepository userRepository,
+            @Value("${security.token-epoch-cache.max-size:100000}") long maxSize,
+            @Value("${security.token-epoch-cache.ttl:PT15M}") Duration ttl
+    ) {
+        this.userRepository = userRepository;
+        this.epochs = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public boolean isCurrent(Long userId, int tokenEpoch) {
+        Integer current = epochs.get(userId, this::load);
+        return current != null && current == tokenEpoch;                // Null when the user no longer exists
+    }
+
+    public int currentEpoch(Long userId) {
+        Integer current = epochs.get(userId, this::load);
+        if (current == null) {
+            throw new UserNotFoundException("User with id " + userId + " not found");
+        }
+        return current;
+    }
+
+    /**
+     * The user's epoch if already known, for callers that load it themselves without blocking.
+     */
+    public Integer getIfKnown(Long userId) {
+        return epochs.getIfPresent(userId);
+    }
+
+    // Epochs only move forward, so a stale value never replaces a newer one
+    public int remember(Long userId, int epoch) {
+        return epochs.asMap().merge(userId, epoch, Math::max);
+    }
+
+    /**
+     * Moves the user to a new epoch and returns it. The new epoch is cached once the
+     * transaction commits, so that a rollback does not leave every token of the user refused.
+     */
+    @Transactional
+    public int revokeAll(Long userId) {
+        userRepository.incrementTokenEpoch(userId);
+        int epoch = userRepository.findTokenEpochById(userId)
+                .orElseThrow(() -> new UserNotFoundException("User with id " + userId + " not found"));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(userId, epoch);
+            }
+        });
+        return epoch;
+    }
+
+    public void forget(Long userId) {
+        epochs.invalidate(userId);
+    }
+
+    public Cache<Long, Integer> getCache() {
+        return epochs;
+    }
+
+    // Not cached when the user does not exist
+    private Integer load(Long userId) {
+        return userRepository.findTokenEpochById(userId).orElse(null);
+    }
+}
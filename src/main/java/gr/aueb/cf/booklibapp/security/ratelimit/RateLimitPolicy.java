@@ -0,0 +1,122 @@
+package gr.aueb.cf.booklibapp.security.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Per-endpoint inbound limits, shared by the servlet and the reactive rate-limit filters.
+ * Authenticated requests are keyed by principal; auth endpoints and anonymous requests
+ * by remote address. The first rule whose path prefix matches applies.
+ */
+@Component
+public class RateLimitPolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimitPolicy.class);
+    private static final String API_PATH_PREFIX = "/api/";
+    private static final String AUTH_PATH_PREFIX = "/api/auth/";
+
+    private final boolean enabled;
+    private final long idleNanos;
+    private final List<Rule> rules;     // Most specific first
+
+    @Autowired
+    public RateLimitPolicy(
+            MeterRegistry meterRegistry,
+            @Value("${ratelimit.enabled:true}") boolean enabled,
+            @Value("${ratelimit.stripes:16}") int stripes,
+            @Value("${ratelimit.idle-ttl:PT10M}") Duration idleTtl,
+            @Value("${ratelimit.search.requests-per-minute:60}") int searchPerMinute,
+            @Value("${ratelimit.search.burst:20}") int searchBurst,
+            @Value("${ratelimit.books.requests-per-minute:120}") int booksPerMinute,
+            @Value("${ratelimit.books.burst:30}") int booksBurst,
+            @Value("${ratelimit.availability.requests-per-minute:120}") int availabilityPerMinute,
+            @Value("${ratelimit.availability.burst:30}") int availabilityBurst,
+            @Value("${ratelimit.auth.requests-per-minute:30}") int authPerMinute,
+            @Value("${ratelimit.auth.burst:10}") int authBurst,
+            @Value("${ratelimit.api.requests-per-minute:300}") int apiPerMinute,
+            @Value("${ratelimit.api.burst:60}") int apiBurst
+    ) {
+        this.enabled = enabled;
+        this.idleNanos = idleTtl.toNanos();
+        this.rules = List.of(
+                new Rule("search", "/api/books/search", new RateLimiter(searchPerMinute, searchBurst, stripes), meterRegistry),
+                new Rule("books", "/api/books/", new RateLimiter(booksPerMinute, booksBurst, stripes), meterRegistry),
+                // Checked as the sign-up form is typed in, so not held to the login and register limit
+                new Rule("availability", "/api/auth/availability", new RateLimiter(availabilityPerMinute, availabilityBurst, stripes), meterRegistry),
+                new Rule("auth", AUTH_PATH_PREFIX, new RateLimiter(authPerMinute, authBurst, stripes), meterRegistry),
+                new Rule("api", API_PATH_PREFIX, new RateLimiter(apiPerMinute, apiBurst, stripes), meterRegistry));
+        Gauge.builder("booklib.ratelimit.buckets", this, RateLimitPolicy::getBucketCount)
+                .description("Clients currently holding an inbound rate-limit bucket")
+                .register(meterRegistry);
+    }
+
+    public boolean appliesTo(String path) {
+        return enabled && path.startsWith(API_PATH_PREFIX);
+    }
+
+    /**
+     * Takes one permit for the request, returning 0, or the nanoseconds until one is available.
+     *
+     * @param principal the authenticated principal's name, or null
+     */
+    public long tryAcquire(String path, String principal, String remoteAddress) {
+        Rule rule = ruleFor(path);
+        // Principals are emails and cannot collide with addresses
+        String client = principal != null && !path.startsWith(AUTH_PATH_PREFIX) ? principal : remoteAddress;
+        long wait = rule.limiter.tryAcquire(client, System.nanoTime());
+        if (wait > 0) {
+            rule.rejected.increment();
+        }
+        return wait;
+    }
+
+    @Scheduled(fixedDelayString = "${ratelimit.eviction-interval:PT1M}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Rule rule : rules) {
+            evicted += rule.limiter.evictIdle(now, idleNanos);
+        }
+        if (evicted > 0) {
+            LOGGER.debug("Evicted {} idle rate-limit buckets, {} remain", evicted, getBucketCount());
+        }
+    }
+
+    public int getBucketCount() {
+        return rules.stream().mapToInt(rule -> rule.limiter.size()).sum();
+    }
+
+    private Rule ruleFor(String path) {
+        for (Rule rule : rules) {
+            if (path.startsWith(rule.pathPrefix)) {
+                return rule;
+            }
+        }
+        return rules.get(rules.size() - 1);
+    }
+
+    private static final class Rule {
+        private final String pathPrefix;
+        private final RateLimiter limiter;
+        private final Counter rejected;
+
+        Rule(String name, String pathPrefix, RateLimiter limiter, MeterRegistry meterRegistry) {
+            this.pathPrefix = pathPrefix;
+            this.limiter = limiter;
+            this.rejected = Counter.builder("booklib.ratelimit.rejected")
+                    .description("Inbound requests rejected by the rate limiter")
+                    .tag("rule", name)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package gr.aueb.cf.booklibapp.security.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-client token buckets for one limit, spread over independent stripes so that
+ * bucket creation and eviction never contend on a single map.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final ConcurrentHashMap<String, TokenBucket>[] stripes;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    public RateLimiter(int requestsPerMinute, int burst, int stripeCount) {
+        this.intervalNanos = 60_000_000_000L / Math.max(1, requestsPerMinute);
+        this.burstNanos = intervalNanos * (Math.max(1, burst) - 1);
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;   // Next power of two
+        this.stripes = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Takes one permit for {@code client}, returning 0, or the nanoseconds until one is available.
+     */
+    public long tryAcquire(String client, long now) {
+        Map<String, TokenBucket> stripe = stripeOf(client);
+        TokenBucket bucket = stripe.get(client);
+        if (bucket == null) {
+            bucket = stripe.computeIfAbsent(client, key -> new TokenBucket(now));
+        }
+        return bucket.tryAcquire(now, intervalNanos, burstNanos);
+    }
+
+    /**
+     * Drops buckets that have been full for longer than {@code idleNanos}. A client that
+     * races with its own eviction starts from a full bucket, which it would have had anyway.
+     */
+    public int evictIdle(long now, long idleNanos) {
+        int evicted = 0;
+        for (ConcurrentHashMap<String, TokenBucket> stripe : stripes) {
+            int before = stripe.size();
+            stripe.values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+            evicted += before - stripe.size();
+        }
+        return evicted;
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, TokenBucket> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private Map<String, TokenBucket> stripeOf(String client) {
+        int hash = client.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+}
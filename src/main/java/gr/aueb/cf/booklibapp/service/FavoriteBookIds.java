@@ -0,0 +1,18 @@
+package gr.aueb.cf.booklibapp.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+/**
+ * Ids of the books a user has favorited, as needed to flag search and detail results.
+ */
+public interface FavoriteBookIds {
+
+    Mono<Set<String>> findFavoriteBookIds(String email);
+
+    /**
+     * Whether one book is among the user's favorites, without loading the others.
+     */
+    Mono<Boolean> isFavorite(String email, String bookId);
+}
@@ -0,0 +1,36 @@
+package gr.aueb.cf.booklibapp.service;
+
+import gr.aueb.cf.booklibapp.dto.FavoriteBookDTO;
+import gr.aueb.cf.booklibapp.service.exceptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor over a user's favorites, holding the (favoritedAt, id) of the
+ * last item of the previous page.
+ */
+public final class FavoritesCursor {
+
+    private FavoritesCursor() {
+    }
+
+    public static String encode(FavoriteBookDTO last) {
+        String raw = last.getFavoritedAt().toString() + '|' + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static FavoriteBookDTO decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            FavoriteBookDTO last = new FavoriteBookDTO();
+            last.setFavoritedAt(Instant.parse(raw.substring(0, separator)));
+            last.setId(raw.substring(separator + 1));
+            return last;
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid favorites cursor", e);
+        }
+    }
+}
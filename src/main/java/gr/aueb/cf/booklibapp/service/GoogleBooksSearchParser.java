@@ -0,0 +1,178 @@
+package gr.aueb.cf.booklibapp.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
+import gr.aueb.cf.booklibapp.dto.GoogleBooksSearchResponse;
+import gr.aueb.cf.booklibapp.dto.ImageLinksDTO;
+import gr.aueb.cf.booklibapp.dto.IndustryIdentifierDTO;
+import gr.aueb.cf.booklibapp.dto.VolumeInfoDTO;
+import org.springframework.core.codec.DecodingException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming decoder for Google Books search responses. Reads the fields named in
+ * {@link #FIELDS} token by token into the book DTOs and skips everything else, so
+ * descriptions and other unused fields are never materialized, even when Google ignores
+ * the selector. The fields left unset stay out of API responses, as the DTOs omit nulls. Null array elements are skipped; a body that is not a JSON object is a
+ * {@link DecodingException}.
+ */
+public final class GoogleBooksSearchParser {
+
+    /**
+     * Partial-response selector sent with every search. Categories and ISBNs are kept
+     * because the local catalog indexes them.
+     */
+    public static final String FIELDS = "totalItems,items(id,volumeInfo(title,authors,categories,"
+            + "industryIdentifiers,imageLinks(smallThumbnail,thumbnail)))";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private GoogleBooksSearchParser() {
+    }
+
+    public static GoogleBooksSearchResponse parse(InputStream in) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            GoogleBooksSearchResponse response = new GoogleBooksSearchResponse();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new DecodingException("Expected a JSON object, got " + parser.currentToken());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("totalItems".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                    response.setTotalItems(parser.getIntValue());
+                } else if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                    List<GoogleBookDTO> items = new ArrayList<>();
+                    JsonToken token;
+                    while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                        if (token == JsonToken.START_OBJECT) {
+                            items.add(readBook(parser));
+                        } else {
+                            parser.skipChildren();                  // null or malformed entries are dropped
+                        }
+                    }
+                    response.setItems(items);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return response;
+        }
+    }
+
+    private static GoogleBookDTO readBook(JsonParser parser) throws IOException {
+        GoogleBookDTO book = new GoogleBookDTO();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("id".equals(field)) {
+                book.setId(parser.getValueAsString());
+            } else if ("volumeInfo".equals(field) && value == JsonToken.START_OBJECT) {
+                book.setVolumeInfo(readVolumeInfo(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return book;
+    }
+
+    private static VolumeInfoDTO readVolumeInfo(JsonParser parser) throws IOException {
+        VolumeInfoDTO info = new VolumeInfoDTO();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "title":
+                    info.setTitle(parser.getValueAsString());
+                    break;
+                case "authors":
+                    info.setAuthors(readStrings(parser, value));
+                    break;
+                case "categories":
+                    info.setCategories(readStrings(parser, value));
+                    break;
+                case "industryIdentifiers":
+                    info.setIndustryIdentifiers(readIdentifiers(parser, value));
+                    break;
+                case "imageLinks":
+                    info.setImageLinks(readImageLinks(parser, value));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return info;
+    }
+
+    private static List<String> readStrings(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<String> strings = new ArrayList<>(2);
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+            if (token.isStructStart()) {
+                parser.skipChildren();
+            } else {
+                strings.add(parser.getValueAsString());
+            }
+        }
+        return strings;
+    }
+
+    private static List<IndustryIdentifierDTO> readIdentifiers(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<IndustryIdentifierDTO> identifiers = new ArrayList<>(2);
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            IndustryIdentifierDTO identifier = new IndustryIdentifierDTO();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("type".equals(field)) {
+                    identifier.setType(parser.getValueAsString());
+                } else if ("identifier".equals(field)) {
+                    identifier.setIdentifier(parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            identifiers.add(identifier);
+        }
+        return identifiers;
+    }
+
+    private static ImageLinksDTO readImageLinks(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        ImageLinksDTO imageLinks = new ImageLinksDTO();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("smallThumbnail".equals(field)) {
+                imageLinks.setSmallThumbnail(parser.getValueAsString());
+            } else if ("thumbnail".equals(field)) {
+                imageLinks.setThumbnail(parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return imageLinks;
+    }
+}
@@ -1,67 +1,436 @@
 package gr.aueb.cf.booklibapp.service;
 
+import gr.aueb.cf.booklibapp.catalog.BookCatalog;
 import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
 import gr.aueb.cf.booklibapp.dto.GoogleBooksSearchResponse;
+import gr.aueb.cf.booklibapp.dto.SearchPageDTO;
+import gr.aueb.cf.booklibapp.service.cache.BookSearchCache;
+import gr.aueb.cf.booklibapp.service.cache.SearchCursor;
+import gr.aueb.cf.booklibapp.service.cache.SearchKey;
+import gr.aueb.cf.booklibapp.service.exceptions.GoogleBooksUnavailableException;
+import gr.aueb.cf.booklibapp.service.exceptions.QuotaExceededException;
+import gr.aueb.cf.booklibapp.service.quota.QuotaGovernor;
+import gr.aueb.cf.booklibapp.service.quota.QuotaPriority;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 @Service
 public class GoogleBooksService {
 
+    private static final int SEARCH_PAGE_SIZE = 18;
+    private static final int GOOGLE_MAX_RESULTS = 40;    // Upper bound of maxResults accepted by Google
+
     private final WebClient webClient;
+    private final BookSearchCache searchCache;
+    private final BookCatalog catalog;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreaker circuitBreaker;
+    private final QuotaGovernor quotaGovernor;
+    private final SingleFlight<SearchKey, List<GoogleBookDTO>> searchFlights = new SingleFlight<>(GoogleBookDTO::copyOf);
+    private final SingleFlight<String, GoogleBookDTO> volumeFlights = new SingleFlight<>(GoogleBookDTO::copyOf);
+    private final Map<SearchType, DistributionSummary> responseBytes = new EnumMap<>(SearchType.class);
+    private final ConcurrentMap<String, ConcurrentMap<String, Timer>> outboundTimers = new ConcurrentHashMap<>();
+
+    @Value("${catalog.local-first.min-results:18}")
+    private int localFirstMinResults;
+
+    @Value("${google.books.search.max-size:200}")
+    private int maxSearchSize;
+
+    @Value("${google.books.search.partial-response:true}")     // Ask Google only for the fields searches use
+    private boolean partialResponse;
+
+    @Value("${google.books.search.prefetch-concurrency:4}")
+    private int prefetchConcurrency;
 
-    @Value("${google.books.apiKey}")
-    private String apiKey;
+    @Value("${google.books.timeout.search:PT4S}")
+    private Duration searchTimeout;
+
+    @Value("${google.books.timeout.volume:PT3S}")
+    private Duration volumeTimeout;
+
+    @Value("${google.books.retry.max-attempts:2}")     // Retries after the first attempt
+    private int retryAttempts;
+
+    @Value("${google.books.retry.min-backoff:PT0.1S}")
+    private Duration retryMinBackoff;
+
+    @Value("${google.books.retry.max-backoff:PT1S}")
+    private Duration retryMaxBackoff;
 
     @Autowired
-    public GoogleBooksService(WebClient webClient) {
+    public GoogleBooksService(WebClient webClient, BookSearchCache searchCache, BookCatalog catalog,
+                              MeterRegistry meterRegistry, CircuitBreaker googleBooksCircuitBreaker,
+                              QuotaGovernor quotaGovernor) {
         this.webClient = webClient;
+        this.searchCache = searchCache;
+        this.catalog = catalog;
+        this.meterRegistry = meterRegistry;
+        this.circuitBreaker = googleBooksCircuitBreaker;
+        this.quotaGovernor = quotaGovernor;
+        for (SearchType type : SearchType.values()) {
+            responseBytes.put(type, DistributionSummary.builder("booklib.google.response.bytes")
+                    .description("Size of Google Books search responses")
+                    .baseUnit("bytes")
+                    .tag("type", typeTag(type))
+                    .register(meterRegistry));
+        }
     }
 
     public Flux<GoogleBookDTO> searchBooks(String query) {
-        return webClient.get()
+        return searchBooks(query, false);
+    }
+
+    public Flux<GoogleBookDTO> searchBooksByTitle(String title) {
+        return searchBooksByTitle(title, false);
+    }
+
+    public Flux<GoogleBookDTO> searchBooksByAuthor(String author) {
+        return searchBooksByAuthor(author, false);
+    }
+
+    public Flux<GoogleBookDTO> searchBooksByCategory(String category) {
+        return searchBooksByCategory(category, false);
+    }
+
+    public Flux<GoogleBookDTO> searchBooksByIsbn(String isbn) {
+        return searchBooksByIsbn(isbn, false);
+    }
+
+    public Flux<GoogleBookDTO> searchBooks(String query, boolean localFirst) {
+        return search(SearchKey.of(query), localFirst);
+    }
+
+    public Flux<GoogleBookDTO> searchBooksByTitle(String title, boolean localFirst) {
+        return search(SearchKey.of(SearchType.TITLE, title), localFirst);
+    }
+
+    public Flux<GoogleBookDTO> searchBooksByAuthor(String author, boolean localFirst) {
+        return search(SearchKey.of(SearchType.AUTHOR, author), localFirst);
+    }
+
+    public Flux<GoogleBookDTO> searchBooksByCategory(String category, boolean localFirst) {
+        return search(SearchKey.of(SearchType.CATEGORY, category), localFirst);
+    }
+
+    public Flux<GoogleBookDTO> searchBooksByIsbn(String isbn, boolean localFirst) {
+        return search(SearchKey.of(SearchType.ISBN, isbn), localFirst);
+    }
+
+    public Mono<GoogleBookDTO> findBookById(String id) {
+        return findBookById(id, QuotaPriority.DETAIL);
+    }
+
+    /**
+     * Looks up a volume, competing for outbound quota at the given priority.
+     */
+    public Mono<GoogleBookDTO> findBookById(String id, QuotaPriority priority) {
+        return Mono.defer(() -> {
+            GoogleBookDTO cached = searchCache.getVolume(id);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return volumeFlights.execute(id, () -> fetchVolume(id, priority)
+                            .doOnNext(book -> {
+                                searchCache.putVolume(id, book);
+                                catalog.ingest(book);
+                            }))
+                    .onErrorResume(GoogleBooksService::isUnavailable, error -> {
+                        GoogleBookDTO local = catalog.findById(id);     // Degraded: last version we saw
+                        return local != null ? Mono.just(local) : Mono.error(unavailable(error));
+                    });
+        });
+    }
+
+    /**
+     * Returns one page of {@code size} results, fetching the Google pages it spans concurrently.
+     * Pass the {@code nextCursor} of a page to continue from where it ended.
+     */
+    public Mono<SearchPageDTO> searchPage(SearchType type, String term, String cursor, int size) {
+        SearchCursor position = cursor != null
+                ? SearchCursor.decode(cursor)
+                : new SearchCursor(SearchKey.of(type, term), 0);
+        int pageSize = clampSize(size);
+        return fetchRange(position.getKey(), position.getStartIndex(), pageSize)
+                .onErrorMap(GoogleBooksService::isUnavailable, this::unavailable)
+                .collectList()
+                .map(responses -> {
+                    List<GoogleBookDTO> items = new ArrayList<>();
+                    Integer totalItems = null;
+                    boolean exhausted = false;
+                    for (GoogleBooksSearchResponse response : responses) {
+                        int received = response.getItems() == null ? 0 : response.getItems().size();
+                        if (received > 0) {
+                            items.addAll(response.getItems());
+                        }
+                        if (response.getTotalItems() != null) {
+                            totalItems = response.getTotalItems();
+                        }
+                        exhausted |= received == 0;
+                    }
+                    // Google may return fewer items than asked for even when more follow, so a short page is not the end
+                    int nextIndex = position.getStartIndex() + pageSize;
+                    boolean hasMore = !items.isEmpty() && (totalItems != null
+                            ? position.getStartIndex() + items.size() < totalItems
+                            : !exhausted);
+                    String nextCursor = hasMore ? new SearchCursor(position.getKey(), nextIndex).encode() : null;
+                    return new SearchPageDTO(items, nextCursor, totalItems);
+                });
+    }
+
+    /**
+     * Streams up to {@code size} results, emitting each Google page as soon as it and
+     * every page before it have arrived.
+     */
+    public Flux<GoogleBookDTO> streamSearch(SearchType type, String term, int size) {
+        return fetchRange(SearchKey.of(type, term), 0, clampSize(size))
+                .onErrorMap(GoogleBooksService::isUnavailable, this::unavailable)
+                .concatMapIterable(response -> response.getItems() == null
+                        ? Collections.<GoogleBookDTO>emptyList()
+                        : response.getItems());
+    }
+
+    /**
+     * Number of outbound calls avoided because an identical call was already in flight.
+     */
+    public long getCoalescedCalls() {
+        return searchFlights.getCoalescedCalls() + volumeFlights.getCoalescedCalls();
+    }
+
+    private Flux<GoogleBookDTO> search(SearchKey key, boolean localFirst) {
+        return Flux.defer(() -> {
+            if (localFirst) {
+                List<GoogleBookDTO> local = catalog.search(key, localFirstMinResults);
+                if (local.size() >= localFirstMinResults) {
+                    return Flux.fromIterable(local);    // Enough local hits, Google is not needed
+                }
+            }
+            List<GoogleBookDTO> cached = searchCache.getSearch(key);
+            if (cached != null) {
+                return Flux.fromIterable(cached);   // Empty lists are cached too, as negative results
+            }
+            return searchFlights.execute(key, () -> fetchSearch(key)
+                            .doOnNext(books -> {
+                                searchCache.putSearch(key, books);
+                                catalog.ingestSearchResults(books);
+                            }))
+                    .onErrorResume(GoogleBooksService::isUnavailable, error -> {
+                        List<GoogleBookDTO> local = catalog.search(key, SEARCH_PAGE_SIZE);   // Degraded, and not cached
+                        return local.isEmpty() ? Mono.error(unavailable(error)) : Mono.just(local);
+                    })
+                    .flatMapMany(Flux::fromIterable);
+        });
+    }
+
+    // Splits [startIndex, startIndex + size) into Google pages fetched with bounded parallelism, in order
+    private Flux<GoogleBooksSearchResponse> fetchRange(SearchKey key, int startIndex, int size) {
+        int pages = (size + GOOGLE_MAX_RESULTS - 1) / GOOGLE_MAX_RESULTS;
+        return Flux.range(0, pages)
+                .flatMapSequential(page -> {
+                    int offset = page * GOOGLE_MAX_RESULTS;
+                    int maxResults = Math.min(GOOGLE_MAX_RESULTS, size - offset);
+                    return fetchPage(key, startIndex + offset, maxResults)
+                            .doOnNext(response -> {
+                                if (response.getItems() != null) {
+                                    catalog.ingestSearchResults(response.getItems());
+                                }
+                            });
+                }, prefetchConcurrency);
+    }
+
+    private int clampSize(int size) {
+        return Math.max(1, Math.min(size, maxSearchSize));
+    }
+
+    private Mono<List<GoogleBookDTO>> fetchSearch(SearchKey key) {
+        return fetchPage(key, 0, SEARCH_PAGE_SIZE)
+                .map(response -> {
+                    if (response.getItems() == null) {
+                        return Collections.<GoogleBookDTO>emptyList();
+                    }
+                    return response.getItems(); // Extract the list of items
+                });
+    }
+
+    private Mono<GoogleBooksSearchResponse> fetchPage(SearchKey key, int startIndex, int maxResults) {
+        String type = typeTag(key.getType());
+        return resilient(type, searchTimeout, QuotaPriority.SEARCH, apiKey -> webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/volumes")
-                        .queryParam("q", query)
+                        .queryParam("q", key.toQuery())
                         .queryParam("key", apiKey)
                         .queryParam("printType", "books")
                         .queryParam("langRestrict", "en")
-                        .queryParam("maxResults", 18)
+                        .queryParam("startIndex", startIndex)
+                        .queryParam("maxResults", maxResults)
+                        .queryParamIfPresent("fields", Optional.of(GoogleBooksSearchParser.FIELDS).filter(fields -> partialResponse))
                         .build())
                 .retrieve()
-                .bodyToMono(GoogleBooksSearchResponse.class) // Deserialize into the wrapper DTO
-                .flatMapMany(response -> {
-                    if (response.getItems() == null) {
-                        return Flux.empty();
-                    }
-                   return Flux.fromIterable(response.getItems()); // Extract the list of items
-                });
+                .bodyToMono(DataBuffer.class)          // Aggregated up to the codec's max-in-memory-size
+                .flatMap(body -> decodeSearch(key.getType(), body)));
     }
 
-    public Flux<GoogleBookDTO> searchBooksByTitle(String title) {
-        return searchBooks("intitle:" + title);
+    // Full volumes only come from findBookById; search results only fill in the FIELDS Google was asked for
+    private Mono<GoogleBooksSearchResponse> decodeSearch(SearchType type, DataBuffer body) {
+        return Mono.fromCallable(() -> {
+            responseBytes.get(type).record(body.readableByteCount());
+            try (InputStream in = body.asInputStream(true)) {
+                return GoogleBooksSearchParser.parse(in);
+            } catch (IOException e) {
+                throw new DecodingException("Could not decode the Google Books search response", e);
+            }
+        });
     }
 
-    public Flux<GoogleBookDTO> searchBooksByAuthor(String author) {
-        return searchBooks("inauthor:" + author);
+    private Mono<GoogleBookDTO> fetchVolume(String id, QuotaPriority priority) {
+        return resilient("id", volumeTimeout, priority, apiKey -> webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/volumes/{id}")
+                        .queryParam("key", apiKey)
+                        .build(id))
+                .retrieve()
+                .bodyToMono(GoogleBookDTO.class)); //Single book resource
     }
 
-    public Flux<GoogleBookDTO> searchBooksByCategory(String category) {
-        return searchBooks("subject:" + category);
+    /*
+     * Every attempt takes a permit from the quota governor, then is timed, bounded by the operation
+     * timeout and recorded by the circuit breaker. Only the HTTP call is recorded, so time spent
+     * waiting for quota never counts as a slow call. Transient failures are retried with jittered
+     * backoff; an open breaker fails immediately without spending quota.
+     */
+    private <T> Mono<T> resilient(String type, Duration timeout, QuotaPriority priority, Function<String, Mono<T>> call) {
+        return acquireUnlessOpen(priority)
+                .flatMap(apiKey -> timed(type, call.apply(apiKey).timeout(timeout))
+                        .doOnError(error -> {
+                            if (isThrottled(error)) {
+                                quotaGovernor.onThrottled(apiKey);
+                            }
+                        })
+                        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)))
+                .retryWhen(Retry.backoff(retryAttempts, retryMinBackoff)
+                        .maxBackoff(retryMaxBackoff)
+                        .jitter(0.5)
+                        .filter(GoogleBooksService::isTransient)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
     }
 
-    public Flux<GoogleBookDTO> searchBooksByIsbn(String isbn) {
-        return searchBooks("isbn:" + isbn);
+    // Asking for permission also moves an open breaker to half-open once its wait is over
+    private Mono<String> acquireUnlessOpen(QuotaPriority priority) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                return Mono.error(CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+            }
+            circuitBreaker.releasePermission();                 // Taken again by the operator around the call
+            return quotaGovernor.acquire(priority);
+        });
     }
 
-    public Mono<GoogleBookDTO> findBookById(String id) {
-        return webClient.get()
-                .uri("/volumes/{id}", id)
-                .retrieve()
-                .bodyToMono(GoogleBookDTO.class); //Single book resource
+    // Records the latency and outcome of one outbound call, tagged by query type and HTTP status
+    private <T> Mono<T> timed(String type, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call
+                    .doOnSuccess(result -> recordOutbound(type, "200", start))
+                    .doOnError(error -> recordOutbound(type, statusOf(error), start));
+        });
+    }
+
+    private void recordOutbound(String type, String status, long start) {
+        outboundTimer(type, status).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // Registered once per (type, status) and reused; statuses are only known as responses arrive
+    private Timer outboundTimer(String type, String status) {
+        ConcurrentMap<String, Timer> byStatus = outboundTimers.get(type);
+        if (byStatus == null) {
+            byStatus = outboundTimers.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+        }
+        Timer timer = byStatus.get(status);
+        if (timer == null) {
+            timer = byStatus.computeIfAbsent(status, s -> Timer.builder("booklib.google.requests")
+                    .description("Outbound Google Books API calls")
+                    .tag("type", type)
+                    .tag("status", s)
+                    .register(meterRegistry));
+        }
+        return timer;
+    }
+
+    private static String typeTag(SearchType type) {
+        return type.name().toLowerCase(Locale.ROOT);
+    }
+
+    // Worth another attempt: the request is an idempotent GET and the failure is on Google's side or the network's
+    private static boolean isTransient(Throwable error) {
+        if (error instanceof WebClientResponseException) {
+            int status = ((WebClientResponseException) error).getRawStatusCode();
+            return status == 500 || status == 502 || status == 503 || status == 504;
+        }
+        return error instanceof WebClientRequestException
+                || error instanceof TimeoutException
+                || error instanceof IOException;
+    }
+
+    private static boolean isThrottled(Throwable error) {
+        return error instanceof WebClientResponseException
+                && ((WebClientResponseException) error).getRawStatusCode() == 429;
+    }
+
+    // Google cannot answer right now: transient failures that survived the retries, throttling or an open breaker
+    private static boolean isUnavailable(Throwable error) {
+        return isTransient(error)
+                || isThrottled(error)
+                || error instanceof QuotaExceededException
+                || error instanceof CallNotPermittedException;
+    }
+
+    // Quota problems, ours or Google's, become 429s; everything else a 503
+    private RuntimeException unavailable(Throwable error) {
+        if (error instanceof QuotaExceededException) {
+            return (QuotaExceededException) error;
+        }
+        if (isThrottled(error)) {
+            return new QuotaExceededException("Book lookups are temporarily rate limited, please retry shortly.",
+                    quotaGovernor.getThrottleCooldownSeconds());
+        }
+        return new GoogleBooksUnavailableException("Google Books is temporarily unavailable, please retry shortly.", error);
+    }
+
+    private static String statusOf(Throwable error) {
+        if (error instanceof WebClientResponseException) {
+            return String.valueOf(((WebClientResponseException) error).getRawStatusCode());
+        }
+        return error.getClass().getSimpleName();   // Connection and decoding failures
     }
 }
@@ -1,6 +1,8 @@
 package gr.aueb.cf.booklibapp.service;
 
 import gr.aueb.cf.booklibapp.auth.AuthenticationResponse;
+import gr.aueb.cf.booklibapp.dto.AvailabilityDTO;
+import gr.aueb.cf.booklibapp.dto.FavoritesPageDTO;
 import gr.aueb.cf.booklibapp.dto.UserDTO;
 import gr.aueb.cf.booklibapp.dto.UserLoginDTO;
 import gr.aueb.cf.booklibapp.dto.UserRegisterDTO;
@@ -10,6 +12,7 @@ import reactor.core.publisher.Mono;
 
 import javax.xml.bind.ValidationException;
 import java.util.Optional;
+import java.util.Set;
 
 public interface IUserService {
 
@@ -18,12 +21,17 @@ public interface IUserService {
     void updateUserDetails(String email, UserUpdateDTO userUpdateDto) throws ValidationException;
     void deleteUserByEmail(String email);
     Mono<Void> addBookToFavorites(String email, String bookId);
-    Mono<Void> removeBookFromFavorites(String email, String bookId);
+    // Emits whether the book was a favorite
+    Mono<Boolean> removeBookFromFavorites(String email, String bookId);
     Optional<User> findByEmail(String email);
     Mono<User> findUserByEmail(String email);
     Optional<User> findUserByEmailWithFavorites(String email);
     UserDTO getUserByEmailWithFavorites(String email);
+    Mono<Set<String>> findFavoriteBookIds(String email);
+    FavoritesPageDTO getFavoritesPage(Long userId, String cursor, int size);
+    long countFavorites(Long userId);
     boolean hasFavoritedBook(User user, String bookId);
     boolean isEmailTaken(String email);
     boolean isUsernameTaken(String username);
+    AvailabilityDTO checkAvailability(String username, String email);
 }
@@ -0,0 +1,19 @@
+package gr.aueb.cf.booklibapp.service;
+
+public enum SearchType {
+    GENERAL(""),
+    TITLE("intitle:"),
+    AUTHOR("inauthor:"),
+    CATEGORY("subject:"),
+    ISBN("isbn:");
+
+    private final String prefix;
+
+    SearchType(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+}
@@ -0,0 +1,31 @@
+package gr.aueb.cf.booklibapp.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters for the Token table. The counts are taken by {@link TokenRetentionJob} at the
+ * end of each run, so neither a Prometheus scrape nor a separate schedule runs a query.
+ */
+@Component
+public class SessionMetrics {
+
+    @Autowired
+    public SessionMetrics(TokenRetentionJob retentionJob, MeterRegistry registry) {
+        Gauge.builder("booklib.tokens.rows", retentionJob, TokenRetentionJob::getTokenRows)
+                .description("Rows in the Token table after the last retention run, -1 until first measured")
+                .register(registry);
+        Gauge.builder("booklib.sessions.active", retentionJob, TokenRetentionJob::getActiveSessions)
+                .description("Tokens that were neither expired, revoked nor superseded after the last retention run")
+                .register(registry);
+        FunctionCounter.builder("booklib.tokens.purged", retentionJob, TokenRetentionJob::getTotalPurged)
+                .description("Token rows deleted by the retention job")
+                .register(registry);
+        Gauge.builder("booklib.tokens.purge.batch.max", retentionJob, job -> job.getMaxBatchMillis() / 1000.0)
+                .baseUnit("seconds")
+                .register(registry);
+    }
+}
@@ -0,0 +1,194 @@
+package gr.aueb.cf.booklibapp.service;
+
+import gr.aueb.cf.booklibapp.repository.TokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes dead rows from the Token table, each step through an index and in short
+ * transactions:
+ * <ul>
+ *     <li>tokens of users whose token epoch moved on since the last run, one DELETE per user;</li>
+ *     <li>expired tokens, in batches by primary key with a pause between batches.</li>
+ * </ul>
+ * Rows from before expiry times were recorded are given one, so that they expire too.
+ * Each run ends by counting the rows left and the active sessions among them, for
+ * {@link SessionMetrics}.
+ */
+@Component
+public class TokenRetentionJob {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenRetentionJob.class);
+
+    private final TokenRepository tokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration pauseBetweenBatches;
+    private final int maxPendingUsers;
+    private final Duration tokenLifetime;
+
+    private final ConcurrentMap<Long, Integer> supersededEpochs = new ConcurrentHashMap<>();
+    private final AtomicLong totalPurged = new AtomicLong();
+    private final AtomicLong lastRunPurged = new AtomicLong();
+    private final AtomicLong lastBatchMillis = new AtomicLong();
+    private final AtomicLong maxBatchMillis = new AtomicLong();
+    private final AtomicLong tokenRows = new AtomicLong(-1);
+    private final AtomicLong activeSessions = new AtomicLong(-1);
+
+    @Autowired
+    public TokenRetentionJob(
+            TokenRepository tokenRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${token.retention.enabled:true}") boolean enabled,
+            @Value("${token.retention.batch-size:500}") int batchSize,
+            @Value("${token.retention.max-batches-per-run:100}") int maxBatchesPerRun,
+            @Value("${token.retention.pause-between-batches:PT0.1S}") Duration pauseBetweenBatches,
+            @Value("${token.retention.max-pending-users:10000}") int maxPendingUsers,
+            @Value("${jwt.expiration}") long tokenLifetimeMillis
+    ) {
+        this.tokenRepository = tokenRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseBetweenBatches = pauseBetweenBatches;
+        this.maxPendingUsers = maxPendingUsers;
+        this.tokenLifetime = Duration.ofMillis(tokenLifetimeMillis);
+    }
+
+    /**
+     * Marks the user's tokens issued before {@code epoch} for deletion on the next run. Past
+     * {@code token.retention.max-pending-users} the mark is dropped; those rows go once they expire.
+     */
+    public void onEpochAdvanced(Long userId, int epoch) {
+        if (!enabled) {
+            return;
+        }
+        if (supersededEpochs.size() < maxPendingUsers || supersededEpochs.containsKey(userId)) {
+            supersededEpochs.merge(userId, epoch, Math::max);
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${token.retention.initial-delay:PT1M}",
+            fixedDelayString = "${token.retention.interval:PT15M}"
+    )
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        long purged = 0;
+        int batches = 0;
+        try {
+            purged += purgeSuperseded();
+            backfillExpiry();
+            while (batches < maxBatchesPerRun) {
+                long start = System.nanoTime();
+                Integer deleted = transactionTemplate.execute(status -> purgeExpiredBatch());
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                lastBatchMillis.set(elapsedMillis);
+                maxBatchMillis.accumulateAndGet(elapsedMillis, Math::max);
+                batches++;
+
+                int count = deleted == null ? 0 : deleted;
+                purged += count;
+                if (count < batchSize) {
+                    break;                                              // Nothing left to purge
+                }
+                Thread.sleep(pauseBetweenBatches.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            totalPurged.addAndGet(purged);
+            lastRunPurged.set(purged);
+        }
+        LOGGER.info("Token retention purged {} rows ({} expiry batches, last batch {} ms)",
+                purged, batches, lastBatchMillis.get());
+        if (!Thread.currentThread().isInterrupted()) {
+            count();
+        }
+    }
+
+    // Once per run, when the table is at its smallest
+    private void count() {
+        tokenRows.set(tokenRepository.count());
+        activeSessions.set(tokenRepository.countActive(Instant.now()));
+    }
+
+    private long purgeSuperseded() {
+        long purged = 0;
+        for (Long userId : supersededEpochs.keySet()) {
+            Integer epoch = supersededEpochs.remove(userId);
+            if (epoch != null) {
+                Integer deleted = transactionTemplate.execute(status -> tokenRepository.deleteByUserIdAndEpochBefore(userId, epoch));
+                purged += deleted == null ? 0 : deleted;
+            }
+        }
+        return purged;
+    }
+
+    // No such row outlives a token issued now, so they are treated as expiring a full lifetime from now
+    private void backfillExpiry() throws InterruptedException {
+        Instant expiresAt = Instant.now().plus(tokenLifetime);
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer updated = transactionTemplate.execute(status -> {
+                List<Integer> ids = tokenRepository.findIdsWithoutExpiry(PageRequest.of(0, batchSize));
+                return ids.isEmpty() ? 0 : tokenRepository.updateExpiresAt(ids, expiresAt);
+            });
+            if (updated == null || updated < batchSize) {
+                return;
+            }
+            Thread.sleep(pauseBetweenBatches.toMillis());
+        }
+    }
+
+    private int purgeExpiredBatch() {
+        List<Integer> ids = tokenRepository.findExpiredIds(Instant.now(), PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return tokenRepository.deleteByIdIn(ids);
+    }
+
+    public long getTotalPurged() {
+        return totalPurged.get();
+    }
+
+    public long getLastRunPurged() {
+        return lastRunPurged.get();
+    }
+
+    public long getLastBatchMillis() {
+        return lastBatchMillis.get();
+    }
+
+    public long getMaxBatchMillis() {
+        return maxBatchMillis.get();
+    }
+
+    public long getTokenRows() {
+        return tokenRows.get();
+    }
+
+    public long getActiveSessions() {
+        return activeSessions.get();
+    }
+}
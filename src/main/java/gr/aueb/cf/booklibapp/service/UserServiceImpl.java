@@ -5,38 +5,54 @@ import gr.aueb.cf.booklibapp.auth.AuthenticationResponse;
 import gr.aueb.cf.booklibapp.dto.*;
 import gr.aueb.cf.booklibapp.model.*;
 import gr.aueb.cf.booklibapp.repository.BookRepository;
+import gr.aueb.cf.booklibapp.repository.FavoriteRepository;
 import gr.aueb.cf.booklibapp.repository.TokenRepository;
 import gr.aueb.cf.booklibapp.repository.UserRepository;
+import gr.aueb.cf.booklibapp.security.PrincipalCache;
+import gr.aueb.cf.booklibapp.security.UserPrincipal;
 import gr.aueb.cf.booklibapp.security.jwt.JwtService;
+import gr.aueb.cf.booklibapp.security.jwt.TokenEpochService;
 import gr.aueb.cf.booklibapp.service.exceptions.AuthenticationFailedException;
 import gr.aueb.cf.booklibapp.service.exceptions.PasswordMismatchException;
 import gr.aueb.cf.booklibapp.service.exceptions.UserAlreadyExistsException;
-import gr.aueb.cf.booklibapp.service.exceptions.UserNotFoundException;
+import gr.aueb.cf.booklibapp.service.uniqueness.UniquenessService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.Scheduler;
 
 import javax.persistence.EntityNotFoundException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.bind.ValidationException;
 import java.io.IOException;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
-public class UserServiceImpl implements IUserService {
+public class UserServiceImpl implements IUserService, FavoriteBookIds {
+
+    private static final int MAX_FAVORITES_PAGE_SIZE = 100;
+    public static final Pattern PASSWORD_PATTERN = Pattern.compile("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[\\W_]).{6,}$");
 
     private final UserRepository userRepository;
     private final BookRepository bookRepository;
@@ -44,21 +60,36 @@ public class UserServiceImpl implements IUserService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final TokenEpochService tokenEpochService;
+    private final PrincipalCache principalCache;
+    private final FavoriteRepository favoriteRepository;
+    private final UniquenessService uniquenessService;
+    private final Scheduler jpaScheduler;
+    private final TransactionTemplate transactionTemplate;
+    private final TokenRetentionJob tokenRetentionJob;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository, BookRepository bookRepository, PasswordEncoder passwordEncoder, JwtService jwtService, AuthenticationManager authenticationManager, TokenRepository tokenRepository) {
+    public UserServiceImpl(UserRepository userRepository, BookRepository bookRepository, PasswordEncoder passwordEncoder, JwtService jwtService, AuthenticationManager authenticationManager, TokenRepository tokenRepository, TokenEpochService tokenEpochService, PrincipalCache principalCache, FavoriteRepository favoriteRepository, UniquenessService uniquenessService, @Qualifier("jpaScheduler") Scheduler jpaScheduler, PlatformTransactionManager transactionManager, TokenRetentionJob tokenRetentionJob) {
         this.userRepository = userRepository;
         this.bookRepository = bookRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
         this.authenticationManager = authenticationManager;
         this.tokenRepository = tokenRepository;
+        this.tokenEpochService = tokenEpochService;
+        this.principalCache = principalCache;
+        this.favoriteRepository = favoriteRepository;
+        this.uniquenessService = uniquenessService;
+        this.jpaScheduler = jpaScheduler;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tokenRetentionJob = tokenRetentionJob;
     }
 
     @Transactional
     @Override
     public AuthenticationResponse registerUser(UserRegisterDTO userRegisterDto) {
-        if (userRepository.usernameExists(userRegisterDto.getUsername()) || userRepository.emailExists(userRegisterDto.getEmail())) {
+        AvailabilityDTO availability = uniquenessService.check(userRegisterDto.getUsername(), userRegisterDto.getEmail());
+        if (!Boolean.TRUE.equals(availability.getUsernameAvailable()) || !Boolean.TRUE.equals(availability.getEmailAvailable())) {
             throw new UserAlreadyExistsException("User with the given username or email already exists");
         }
         if (!userRegisterDto.getPassword().equals(userRegisterDto.getConfirmPassword())) {
@@ -70,10 +101,11 @@ public class UserServiceImpl implements IUserService {
                 .password(passwordEncoder.encode(userRegisterDto.getPassword()))
                 .role(Role.USER)
                 .build();
+        uniquenessService.recordRegistration(user.getUsername(), user.getEmail());
         var savedUser = userRepository.save(user);
-        var jwtToken = jwtService.generateToken(user);
+        var jwtToken = jwtService.generateTokenWithUserId(savedUser, savedUser.getId(), savedUser.getTokenEpoch());
         var refreshToken = jwtService.generateRefreshToken(user);
-        saveUserToken(savedUser, jwtToken);
+        saveUserToken(savedUser, jwtToken, savedUser.getTokenEpoch());
         return AuthenticationResponse.builder()
                 .accessToken(jwtToken)
                 .refreshToken(refreshToken)
@@ -84,19 +116,19 @@ public class UserServiceImpl implements IUserService {
     @Override
     public AuthenticationResponse authenticateUser(UserLoginDTO loginDTO) {
         try {
-            authenticationManager.authenticate(
+            Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
                             loginDTO.getEmail(),
                             loginDTO.getPassword()
                     )
             );
-            var user = userRepository.findByEmail(loginDTO.getEmail())
-                    .orElseThrow(() -> new UserNotFoundException("User with email " + loginDTO.getEmail() + " not found"));
+            // Reuse the principal loaded during authentication instead of loading the user again
+            var principal = (UserPrincipal) authentication.getPrincipal();
 
-            var jwtToken = jwtService.generateTokenWithUserId(user, user.getId());
-            var refreshToken = jwtService.generateRefreshToken(user);
-            revokeAllUserTokens(user);
-            saveUserToken(user, jwtToken);
+            var tokenEpoch = revokeAllUserTokens(principal.getId(), principal.getEmail());
+            var jwtToken = jwtService.generateTokenWithUserId(principal, principal.getId(), tokenEpoch);
+            var refreshToken = jwtService.generateRefreshToken(principal);
+            saveUserToken(userRepository.getReferenceById(principal.getId()), jwtToken, tokenEpoch);
             return AuthenticationResponse.builder()
                     .accessToken(jwtToken)
                     .refreshToken(refreshToken).build();
@@ -132,6 +164,7 @@ public class UserServiceImpl implements IUserService {
             user.setPassword(passwordEncoder.encode(userUpdateDto.getPassword()));
         }
         userRepository.save(user);
+        principalCache.invalidate(email);
     }
 
     @Transactional
@@ -141,41 +174,26 @@ public class UserServiceImpl implements IUserService {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
 
         userRepository.delete(user);
+        uniquenessService.recordDeletion();
+        tokenEpochService.forget(user.getId());
+        principalCache.invalidate(email);
     }
 
-    @Transactional
+    // Not @Transactional: that would open the transaction on the subscribing thread and commit
+    // it before the work runs. The transaction is started on the JPA scheduler instead.
     @Override
     public Mono<Void> addBookToFavorites(String email, String bookId) {
-        return Mono.fromCallable(() -> {
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new EntityNotFoundException("User not found"));
-            Book book = bookRepository.findById(bookId)
-                    .orElseThrow(() -> new EntityNotFoundException("Book not found."));
-            user.addFavoriteBook(book);
-            book.addFavoritedByUser(user);
-            userRepository.save(user);
-            return null;
-        });
+        return Mono.fromRunnable(() -> transactionTemplate.executeWithoutResult(status -> {
+            if (favoriteRepository.insert(email, bookId) == 0) {
+                throw new EntityNotFoundException("User or book not found.");
+            }
+        })).subscribeOn(jpaScheduler).then();
     }
 
-    @Transactional
     @Override
-    public Mono<Void> removeBookFromFavorites(String email, String bookId) {
-        return Mono.fromRunnable(() -> {
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new EntityNotFoundException("User not found."));
-            Book book = bookRepository.findById(bookId)
-                    .orElseThrow(() -> new EntityNotFoundException("Book not found."));
-
-            if (user.getFavoriteBooks().contains(book)) {
-                user.removeFavoriteBook(book);
-            }
-            if (book.getFavoritedByUsers().contains(user)) {
-                book.removeFavoritedByUser(user);
-            }
-            userRepository.saveAndFlush(user);
-            bookRepository.saveAndFlush(book);
-        }).then();
+    public Mono<Boolean> removeBookFromFavorites(String email, String bookId) {
+        return Mono.fromCallable(() -> transactionTemplate.execute(status -> favoriteRepository.delete(email, bookId) > 0))
+                .subscribeOn(jpaScheduler);
     }
 
     @Override
@@ -197,10 +215,52 @@ public class UserServiceImpl implements IUserService {
     @Override
     public Mono<User> findUserByEmail(String email) {
         return Mono.fromCallable(() -> findUserByEmailWithFavorites(email))
-                .subscribeOn(Schedulers.boundedElastic())
+                .subscribeOn(jpaScheduler)
                 .flatMap(userOpt -> userOpt.map(Mono::just).orElseGet(Mono::empty));
     }
 
+    @Override
+    public Mono<Set<String>> findFavoriteBookIds(String email) {
+        return Mono.<Set<String>>fromCallable(() -> new HashSet<>(userRepository.findFavoriteBookIdsByEmail(email)))
+                .subscribeOn(jpaScheduler);
+    }
+
+    @Override
+    public Mono<Boolean> isFavorite(String email, String bookId) {
+        return Mono.fromCallable(() -> userRepository.favoriteExists(email, bookId))
+                .subscribeOn(jpaScheduler);
+    }
+
+    @Override
+    public FavoritesPageDTO getFavoritesPage(Long userId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_FAVORITES_PAGE_SIZE));
+        PageRequest limit = PageRequest.of(0, pageSize + 1);        // One extra row tells us whether a next page exists
+
+        List<FavoriteRepository.FavoriteRow> rows;
+        if (cursor == null) {
+            rows = favoriteRepository.findFirstPage(userId, limit);
+        } else {
+            FavoriteBookDTO last = FavoritesCursor.decode(cursor);
+            rows = favoriteRepository.findPageAfter(userId, last.getFavoritedAt(), last.getId(), limit);
+        }
+
+        List<FavoriteBookDTO> items = rows.stream()
+                .map(row -> new FavoriteBookDTO(row.getId(), row.getTitle(), row.getSmallThumbnail(), row.getFavoritedAt()))
+                .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            nextCursor = FavoritesCursor.encode(items.get(pageSize - 1));
+        }
+        return new FavoritesPageDTO(items, nextCursor);
+    }
+
+    @Override
+    public long countFavorites(Long userId) {
+        return favoriteRepository.countByUserId(userId);
+    }
+
     @Override
     public UserDTO getUserByEmailWithFavorites(String email) {
         Optional<User> userOpt = userRepository.findByEmailWithFavorites(email);
@@ -215,46 +275,60 @@ public class UserServiceImpl implements IUserService {
 
     @Override
     public boolean isEmailTaken(String email) {
-        return userRepository.emailExists(email);
+        return uniquenessService.isEmailTaken(email);
     }
 
     @Override
     public boolean isUsernameTaken(String username) {
-        return userRepository.usernameExists(username);
+        return uniquenessService.isUsernameTaken(username);
+    }
+
+    @Override
+    public AvailabilityDTO checkAvailability(String username, String email) {
+        return uniquenessService.check(username, email);
     }
 
-    private void saveUserToken(User user, String jwtToken) {
+    private void saveUserToken(User user, String jwtToken, int tokenEpoch) {
         var token = Token.builder()
                 .user(user)
                 .token(jwtToken)
                 .tokenType(TokenType.BEARER)
                 .expired(false)
                 .revoked(false)
+                .epoch(tokenEpoch)
+                .expiresAt(Instant.now().plusMillis(jwtService.getJwtExpiration()))
                 .build();
         tokenRepository.save(token);
     }
 
-    private void revokeAllUserTokens(User user) {
-        var validUserTokens = tokenRepository.findAllValidTokenByUser(user.getId());
-        if (validUserTokens.isEmpty())
-            return;
-        validUserTokens.forEach(token -> {
-            token.setExpired(true);
-            token.setRevoked(true);
-        });
-        tokenRepository.saveAll(validUserTokens);
+    // Invalidates every access token issued so far and returns the epoch for the next one
+    // A single UPDATE of the user's epoch, however many sessions the user has
+    private int revokeAllUserTokens(Long userId, String email) {
+        int tokenEpoch = tokenEpochService.revokeAll(userId);
+        principalCache.invalidate(email);
+        tokenRetentionJob.onEpochAdvanced(userId, tokenEpoch);         // Superseded rows are deleted off the request path
+        return tokenEpoch;
     }
 
     public void refreshToken(
             HttpServletRequest request,
             HttpServletResponse response
     ) throws IOException {
-        final String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        Optional<AuthenticationResponse> authResponse = refreshToken(request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (authResponse.isPresent()) {
+            new ObjectMapper().writeValue(response.getOutputStream(), authResponse.get());
+        }
+    }
+
+    /**
+     * Issues a new access token for a valid refresh token, or nothing when the header does not carry one.
+     */
+    public Optional<AuthenticationResponse> refreshToken(String authHeader) {
         final String refreshToken;
         final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return;
+            return Optional.empty();
         }
         refreshToken = authHeader.substring(7);
         userEmail = jwtService.extractUsername(refreshToken);
@@ -262,19 +336,19 @@ public class UserServiceImpl implements IUserService {
             var user = this.userRepository.findByEmail(userEmail)
                     .orElseThrow();
             if (jwtService.isTokenValid(refreshToken, user)) {
-                var accessToken = jwtService.generateToken(user);
-                revokeAllUserTokens(user);
-                saveUserToken(user, accessToken);
-                var authResponse = AuthenticationResponse.builder()
+                var tokenEpoch = revokeAllUserTokens(user.getId(), user.getEmail());
+                var accessToken = jwtService.generateTokenWithUserId(user, user.getId(), tokenEpoch);
+                saveUserToken(user, accessToken, tokenEpoch);
+                return Optional.of(AuthenticationResponse.builder()
                         .accessToken(accessToken)
                         .refreshToken(refreshToken)
-                        .build();
-                new ObjectMapper().writeValue(response.getOutputStream(), authResponse);
+                        .build());
             }
         }
+        return Optional.empty();
     }
 
-    private UserDTO convertToUserDTO(User user) {
+    UserDTO convertToUserDTO(User user) {
         UserDTO dto = new UserDTO();
         dto.setId(user.getId());
         dto.setUsername(user.getUsername());
@@ -297,8 +371,7 @@ public class UserServiceImpl implements IUserService {
     }
 
     private void validatePassword(String password) throws ValidationException {
-        String passwordPattern = "^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[\\W_]).{6,}$";
-        if (!password.matches(passwordPattern)) {
+        if (!PASSWORD_PATTERN.matcher(password).matches()) {
             throw new ValidationException("Password must contain at least one lowercase, one uppercase, one digit, and one special character.");
         }
     }
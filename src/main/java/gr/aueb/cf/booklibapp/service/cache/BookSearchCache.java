@@ -0,0 +1,23 @@
+package gr.aueb.cf.booklibapp.service.cache;
+
+import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
+
+import java.util.List;
+
+/**
+ * Result cache used by {@link gr.aueb.cf.booklibapp.service.GoogleBooksService}.
+ * An empty list is a valid, negative search result.
+ */
+public interface BookSearchCache {
+
+    /**
+     * @return the cached results, or {@code null} when the query has not been cached
+     */
+    List<GoogleBookDTO> getSearch(SearchKey key);
+
+    void putSearch(SearchKey key, List<GoogleBookDTO> books);
+
+    GoogleBookDTO getVolume(String id);
+
+    void putVolume(String id, GoogleBookDTO book);
+}
@@ -0,0 +1,106 @@
+package gr.aueb.cf.booklibapp.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
+import gr.aueb.cf.booklibapp.service.SearchType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The DTOs are mutable and a cached entry is served to many requests, so books are copied
+ * on the way in and on the way out. A caller can never change what the next one reads.
+ */
+@Component
+public class CaffeineBookSearchCache implements BookSearchCache {
+
+    private final Map<SearchType, Duration> searchTtls = new EnumMap<>(SearchType.class);
+    private final Duration negativeTtl;
+    private final Cache<SearchKey, List<GoogleBookDTO>> searches;
+    private final Cache<String, GoogleBookDTO> volumes;
+
+    public CaffeineBookSearchCache(
+            @Value("${google.books.cache.max-searches:5000}") long maxSearches,
+            @Value("${google.books.cache.max-volumes:20000}") long maxVolumes,
+            @Value("${google.books.cache.ttl.general:PT10M}") Duration generalTtl,
+            @Value("${google.books.cache.ttl.title:PT30M}") Duration titleTtl,
+            @Value("${google.books.cache.ttl.author:PT30M}") Duration authorTtl,
+            @Value("${google.books.cache.ttl.category:PT1H}") Duration categoryTtl,
+            @Value("${google.books.cache.ttl.isbn:PT6H}") Duration isbnTtl,
+            @Value("${google.books.cache.ttl.negative:PT2M}") Duration negativeTtl,
+            @Value("${google.books.cache.ttl.volume:PT12H}") Duration volumeTtl
+    ) {
+        searchTtls.put(SearchType.GENERAL, generalTtl);
+        searchTtls.put(SearchType.TITLE, titleTtl);
+        searchTtls.put(SearchType.AUTHOR, authorTtl);
+        searchTtls.put(SearchType.CATEGORY, categoryTtl);
+        searchTtls.put(SearchType.ISBN, isbnTtl);
+        this.negativeTtl = negativeTtl;
+        this.searches = Caffeine.newBuilder()
+                .maximumSize(maxSearches)
+                .expireAfter(new SearchExpiry())
+                .recordStats()
+                .build();
+        this.volumes = Caffeine.newBuilder()
+                .maximumSize(maxVolumes)
+                .expireAfterWrite(volumeTtl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public List<GoogleBookDTO> getSearch(SearchKey key) {
+        List<GoogleBookDTO> books = searches.getIfPresent(key);
+        return books == null ? null : GoogleBookDTO.copyOf(books);
+    }
+
+    @Override
+    public void putSearch(SearchKey key, List<GoogleBookDTO> books) {
+        searches.put(key, Collections.unmodifiableList(GoogleBookDTO.copyOf(books)));
+    }
+
+    @Override
+    public GoogleBookDTO getVolume(String id) {
+        GoogleBookDTO book = volumes.getIfPresent(id);
+        return GoogleBookDTO.copyOf(book);
+    }
+
+    @Override
+    public void putVolume(String id, GoogleBookDTO book) {
+        volumes.put(id, GoogleBookDTO.copyOf(book));
+    }
+
+    public Cache<SearchKey, List<GoogleBookDTO>> getSearches() {
+        return searches;
+    }
+
+    public Cache<String, GoogleBookDTO> getVolumes() {
+        return volumes;
+    }
+
+    private class SearchExpiry implements Expiry<SearchKey, List<GoogleBookDTO>> {
+
+        @Override
+        public long expireAfterCreate(SearchKey key, List<GoogleBookDTO> books, long currentTime) {
+            Duration ttl = books.isEmpty() ? negativeTtl : searchTtls.get(key.getType());
+            return ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(SearchKey key, List<GoogleBookDTO> books, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, books, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(SearchKey key, List<GoogleBookDTO> books, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
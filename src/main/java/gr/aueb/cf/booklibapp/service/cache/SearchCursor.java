@@ -0,0 +1,50 @@
+package gr.aueb.cf.booklibapp.service.cache;
+
+import gr.aueb.cf.booklibapp.service.SearchType;
+import gr.aueb.cf.booklibapp.service.exceptions.InvalidCursorException;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position in a paginated search, encoded as a URL-safe string.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class SearchCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final SearchKey key;
+    private final int startIndex;
+
+    public SearchCursor(SearchKey key, int startIndex) {
+        this.key = key;
+        this.startIndex = startIndex;
+    }
+
+    public String encode() {
+        String raw = key.getType().name() + SEPARATOR + startIndex + SEPARATOR + key.getTerm();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            int second = raw.indexOf(SEPARATOR, first + 1);
+            SearchType type = SearchType.valueOf(raw.substring(0, first));
+            int startIndex = Integer.parseInt(raw.substring(first + 1, second));
+            if (startIndex < 0) {
+                throw new IllegalArgumentException("Negative start index");
+            }
+            return new SearchCursor(SearchKey.of(type, raw.substring(second + 1)), startIndex);
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid search cursor", e);
+        }
+    }
+}
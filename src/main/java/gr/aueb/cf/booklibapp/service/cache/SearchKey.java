@@ -0,0 +1,62 @@
+package gr.aueb.cf.booklibapp.service.cache;
+
+import gr.aueb.cf.booklibapp.service.SearchType;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalized search query. Queries differing only in case, surrounding or repeated
+ * whitespace, or the spelling of a field prefix map to the same key.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class SearchKey {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern ISBN_SEPARATORS = Pattern.compile("[\\s-]");
+
+    private final SearchType type;
+    private final String term;
+
+    private SearchKey(SearchType type, String term) {
+        this.type = type;
+        this.term = term;
+    }
+
+    public static SearchKey of(SearchType type, String term) {
+        String normalized = normalize(term);
+        if (type == SearchType.ISBN) {
+            normalized = ISBN_SEPARATORS.matcher(normalized).replaceAll("");
+        }
+        return new SearchKey(type, normalized);
+    }
+
+    /**
+     * Builds a key from a raw query, recognising a leading field prefix such as {@code intitle:}.
+     */
+    public static SearchKey of(String query) {
+        String normalized = normalize(query);
+        for (SearchType type : SearchType.values()) {
+            if (type != SearchType.GENERAL && normalized.startsWith(type.getPrefix())) {
+                return of(type, normalized.substring(type.getPrefix().length()));
+            }
+        }
+        return new SearchKey(SearchType.GENERAL, normalized);
+    }
+
+    public String toQuery() {
+        return type.getPrefix() + term;
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return WHITESPACE.matcher(value.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,9 @@
+package gr.aueb.cf.booklibapp.service.exceptions;
+
+public class GoogleBooksUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public GoogleBooksUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,9 @@
+package gr.aueb.cf.booklibapp.service.exceptions;
+
+public class PasswordHashingBusyException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,126 @@
+package gr.aueb.cf.booklibapp.service.quota;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free token bucket for one API key, kept as a single theoretical arrival time
+ * (GCRA): each permit moves it forward by one emission interval, and a call conforms
+ * while it stays within the burst allowance of now. Reserving a slot in the future is
+ * how callers wait their turn without a lock or a queue.
+ */
+class ApiKeyBucket {
+
+    private static final ZoneId QUOTA_ZONE = ZoneId.of("America/Los_Angeles");    // Google resets daily quotas at midnight Pacific
+
+    private final String apiKey;
+    private final String label;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int burst;
+    private final long dailyLimit;
+
+    private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+    private final AtomicReference<LocalDate> day = new AtomicReference<>(LocalDate.now(QUOTA_ZONE));
+    private final AtomicLong dailyUsed = new AtomicLong();
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    ApiKeyBucket(String apiKey, String label, int requestsPerMinute, int burst, long dailyLimit) {
+        this.apiKey = apiKey;
+        this.label = label;
+        this.intervalNanos = 60_000_000_000L / Math.max(1, requestsPerMinute);
+        this.burst = Math.max(1, burst);
+        this.burstNanos = intervalNanos * (this.burst - 1);
+        this.dailyLimit = dailyLimit;
+    }
+
+    /**
+     * Reserves one permit for a caller allowed {@code share} of the burst, returning how
+     * long it must wait before using it, or -1 when that would exceed {@code maxWaitNanos}.
+     */
+    long tryReserve(long now, double share, long maxWaitNanos) {
+        if (dailyExhausted()) {
+            return -1;
+        }
+        long allowance = (long) (burstNanos * share);
+        while (true) {
+            long current = theoreticalArrival.get();
+            long start = Math.max(current, now);
+            long wait = start - now - allowance;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(current, start + intervalNanos)) {
+                granted.increment();
+                dailyUsed.incrementAndGet();
+                return Math.max(0, wait);
+            }
+        }
+    }
+
+    /**
+     * Gives back a permit reserved by {@link #tryReserve} that will not be used.
+     */
+    void release() {
+        theoreticalArrival.addAndGet(-intervalNanos);
+        granted.decrement();
+        dailyUsed.updateAndGet(used -> Math.max(0, used - 1));     // May have been reset at midnight meanwhile
+    }
+
+    long peekWait(long now, double share) {
+        if (dailyExhausted()) {
+            return Long.MAX_VALUE;
+        }
+        long start = Math.max(theoreticalArrival.get(), now);
+        return Math.max(0, start - now - (long) (burstNanos * share));
+    }
+
+    // Google rejected a call with 429 despite our budget, so stop using this key for a while
+    void penalize(long now, long cooldownNanos) {
+        throttled.increment();
+        theoreticalArrival.accumulateAndGet(now + cooldownNanos + burstNanos, Math::max);
+    }
+
+    int availablePermits(long now) {
+        long backlog = Math.max(0, theoreticalArrival.get() - now);
+        long permits = (burstNanos - backlog) / intervalNanos + 1;
+        return (int) Math.max(0, Math.min(burst, permits));
+    }
+
+    private boolean dailyExhausted() {
+        LocalDate today = LocalDate.now(QUOTA_ZONE);
+        LocalDate counted = day.get();
+        if (!today.equals(counted) && day.compareAndSet(counted, today)) {
+            dailyUsed.set(0);
+        }
+        return dailyLimit > 0 && dailyUsed.get() >= dailyLimit;
+    }
+
+    String getApiKey() {
+        return apiKey;
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    long getGranted() {
+        return granted.sum();
+    }
+
+    long getThrottled() {
+        return throttled.sum();
+    }
+
+    long getDailyUsed() {
+        return dailyUsed.get();
+    }
+
+    long getDailyLimit() {
+        return dailyLimit;
+    }
+}
@@ -0,0 +1,37 @@
+package gr.aueb.cf.booklibapp.service.quota;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/quota}: live Google Books quota consumption per API key.
+ */
+@Component
+@Endpoint(id = "quota")
+public class QuotaEndpoint {
+
+    private final QuotaGovernor governor;
+
+    @Autowired
+    public QuotaEndpoint(QuotaGovernor governor) {
+        this.governor = governor;
+    }
+
+    @ReadOperation
+    public Map<String, Object> quota() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("keys", governor.getUsage());
+        report.put("waiting", governor.getWaiting());
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        for (QuotaPriority priority : QuotaPriority.values()) {
+            rejected.put(priority.name(), governor.getRejected(priority));
+        }
+        report.put("rejected", rejected);
+        return report;
+    }
+}
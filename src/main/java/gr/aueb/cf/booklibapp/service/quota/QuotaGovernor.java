@@ -0,0 +1,196 @@
+package gr.aueb.cf.booklibapp.service.quota;
+
+import gr.aueb.cf.booklibapp.service.exceptions.QuotaExceededException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Grants outbound Google Books calls against per-key token buckets, rotating over the
+ * configured API keys. A call that cannot go out at once may wait up to its priority's
+ * limit for the first key to free up; beyond that it is rejected with
+ * {@link QuotaExceededException} instead of being sent to Google to fail.
+ */
+@Component
+public class QuotaGovernor {
+
+    private static final int RESERVE_ATTEMPTS = 3;
+
+    private final List<ApiKeyBucket> buckets;
+    private final Map<QuotaPriority, Long> maxWaitNanos = new EnumMap<>(QuotaPriority.class);
+    private final long throttleCooldownNanos;
+    private final AtomicInteger nextKey = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Map<QuotaPriority, LongAdder> rejected = new EnumMap<>(QuotaPriority.class);
+
+    @Autowired
+    public QuotaGovernor(
+            @Value("${google.books.apiKeys:${google.books.apiKey}}") String[] apiKeys,
+            @Value("${google.books.quota.requests-per-minute:600}") int requestsPerMinute,
+            @Value("${google.books.quota.burst:20}") int burst,
+            @Value("${google.books.quota.daily-limit:0}") long dailyLimit,
+            @Value("${google.books.quota.throttle-cooldown:PT10S}") Duration throttleCooldown,
+            @Value("${google.books.quota.max-wait.favorite:PT2S}") Duration favoriteMaxWait,
+            @Value("${google.books.quota.max-wait.detail:PT1S}") Duration detailMaxWait,
+            @Value("${google.books.quota.max-wait.search:PT0.3S}") Duration searchMaxWait
+    ) {
+        List<ApiKeyBucket> keys = new ArrayList<>();
+        Arrays.stream(apiKeys)
+                .map(String::trim)
+                .filter(key -> !key.isEmpty())
+                .distinct()
+                .forEach(key -> keys.add(new ApiKeyBucket(key, "key-" + keys.size(), requestsPerMinute, burst, dailyLimit)));
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("No Google Books API key configured (google.books.apiKeys or google.books.apiKey)");
+        }
+        this.buckets = Collections.unmodifiableList(keys);
+        this.throttleCooldownNanos = throttleCooldown.toNanos();
+        this.maxWaitNanos.put(QuotaPriority.FAVORITE, favoriteMaxWait.toNanos());
+        this.maxWaitNanos.put(QuotaPriority.DETAIL, detailMaxWait.toNanos());
+        this.maxWaitNanos.put(QuotaPriority.SEARCH, searchMaxWait.toNanos());
+        for (QuotaPriority priority : QuotaPriority.values()) {
+            rejected.put(priority, new LongAdder());
+        }
+    }
+
+    /**
+     * Emits the API key to use once the call may go out.
+     */
+    public Mono<String> acquire(QuotaPriority priority) {
+        return Mono.defer(() -> {
+            long now = System.nanoTime();
+            double share = priority.getBurstShare();
+            int size = buckets.size();
+            int first = Math.floorMod(nextKey.getAndIncrement(), size);
+
+            for (int i = 0; i < size; i++) {
+                ApiKeyBucket bucket = buckets.get((first + i) % size);
+                if (bucket.tryReserve(now, share, 0) == 0) {
+                    return Mono.just(bucket.getApiKey());
+                }
+            }
+
+            long maxWait = maxWaitNanos.get(priority);
+            for (int attempt = 0; attempt < RESERVE_ATTEMPTS; attempt++) {
+                ApiKeyBucket soonest = soonest(now, share);
+                if (soonest.peekWait(now, share) > maxWait) {
+                    break;
+                }
+                long wait = soonest.tryReserve(now, share, maxWait);
+                if (wait >= 0) {
+                    waiting.incrementAndGet();
+                    return Mono.delay(Duration.ofNanos(wait))
+                            .thenReturn(soonest.getApiKey())
+                            .doFinally(signal -> {
+                                waiting.decrementAndGet();
+                                if (signal == SignalType.CANCEL) {
+                                    soonest.release();          // Cancelled while waiting, the slot was never used
+                                }
+                            });
+                }
+            }
+
+            rejected.get(priority).increment();
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(soonest(now, share).peekWait(now, share)) + 1);
+            return Mono.error(new QuotaExceededException(
+                    "Book lookups are temporarily rate limited, please retry shortly.",
+                    Math.min(retryAfter, TimeUnit.DAYS.toSeconds(1))));
+        });
+    }
+
+    /**
+     * Reports a 429 from Google for {@code apiKey}; the key is rested for the cooldown.
+     */
+    public void onThrottled(String apiKey) {
+        long now = System.nanoTime();
+        buckets.stream()
+                .filter(bucket -> bucket.getApiKey().equals(apiKey))
+                .forEach(bucket -> bucket.penalize(now, throttleCooldownNanos));
+    }
+
+    public long getThrottleCooldownSeconds() {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(throttleCooldownNanos));
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public long getRejected(QuotaPriority priority) {
+        return rejected.get(priority).sum();
+    }
+
+    public List<String> getKeyLabels() {
+        List<String> labels = new ArrayList<>();
+        buckets.forEach(bucket -> labels.add(bucket.getLabel()));
+        return labels;
+    }
+
+    public long getGranted(String label) {
+        return bucket(label).getGranted();
+    }
+
+    public long getThrottled(String label) {
+        return bucket(label).getThrottled();
+    }
+
+    public long getDailyUsed(String label) {
+        return bucket(label).getDailyUsed();
+    }
+
+    public int getAvailablePermits(String label) {
+        return bucket(label).availablePermits(System.nanoTime());
+    }
+
+    /**
+     * Live consumption per key, identified by label so that keys never leave the process.
+     */
+    public Map<String, Map<String, Long>> getUsage() {
+        long now = System.nanoTime();
+        Map<String, Map<String, Long>> usage = new LinkedHashMap<>();
+        for (ApiKeyBucket bucket : buckets) {
+            Map<String, Long> key = new LinkedHashMap<>();
+            key.put("granted", bucket.getGranted());
+            key.put("throttledByGoogle", bucket.getThrottled());
+            key.put("availablePermits", (long) bucket.availablePermits(now));
+            key.put("dailyUsed", bucket.getDailyUsed());
+            key.put("dailyLimit", bucket.getDailyLimit());
+            usage.put(bucket.getLabel(), key);
+        }
+        return usage;
+    }
+
+    private ApiKeyBucket bucket(String label) {
+        return buckets.stream()
+                .filter(bucket -> bucket.getLabel().equals(label))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown API key " + label));
+    }
+
+    private ApiKeyBucket soonest(long now, double share) {
+        ApiKeyBucket soonest = buckets.get(0);
+        long soonestWait = soonest.peekWait(now, share);
+        for (int i = 1; i < buckets.size(); i++) {
+            long wait = buckets.get(i).peekWait(now, share);
+            if (wait < soonestWait) {
+                soonest = buckets.get(i);
+                soonestWait = wait;
+            }
+        }
+        return soonest;
+    }
+}
@@ -0,0 +1,21 @@
+package gr.aueb.cf.booklibapp.service.quota;
+
+/**
+ * Priority classes for outbound Google Books calls. A class may only spend its share of
+ * each key's burst, so the remainder stays reserved for the classes above it.
+ */
+public enum QuotaPriority {
+    FAVORITE(1.0),      // Volume lookups while adding a favorite
+    DETAIL(0.9),        // Volume detail pages
+    SEARCH(0.6);        // Exploratory searches and pagination
+
+    private final double burstShare;
+
+    QuotaPriority(double burstShare) {
+        this.burstShare = burstShare;
+    }
+
+    public double getBurstShare() {
+        return burstShare;
+    }
+}
@@ -0,0 +1,214 @@
+package gr.aueb.cf.booklibapp.service.uniqueness;
+
+import gr.aueb.cf.booklibapp.dto.AvailabilityDTO;
+import gr.aueb.cf.booklibapp.dto.UserIdentityDTO;
+import gr.aueb.cf.booklibapp.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers "is this username / email taken?" without touching the database for names
+ * that were never registered.
+ *
+ * <p>Two Bloom filters hold every known username and email, lower-cased. A filter miss
+ * is a definite "available"; a possible hit is confirmed with one query that checks
+ * both values. Deleted users cannot be removed from a Bloom filter, so the filters are
+ * rebuilt from the table once enough deletions or insertions have accumulated.</p>
+ */
+@Service
+public class UniquenessService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UniquenessService.class);
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private final UserRepository userRepository;
+    private final long minCapacity;
+    private final double falsePositiveRate;
+    private final double staleRatio;
+
+    private volatile Filters filters;                   // Null until the first load completes
+    private List<UserIdentityDTO> pendingDuringRebuild;  // Guarded by this
+
+    private final AtomicLong definiteMisses = new AtomicLong();
+    private final AtomicLong databaseChecks = new AtomicLong();
+
+    @Autowired
+    public UniquenessService(
+            UserRepository userRepository,
+            @Value("${uniqueness.bloom.min-capacity:100000}") long minCapacity,
+            @Value("${uniqueness.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${uniqueness.bloom.stale-ratio:0.1}") double staleRatio
+    ) {
+        this.userRepository = userRepository;
+        this.minCapacity = minCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.staleRatio = staleRatio;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    public boolean isUsernameTaken(String username) {
+        return Boolean.FALSE.equals(check(username, null).getUsernameAvailable());
+    }
+
+    public boolean isEmailTaken(String email) {
+        return Boolean.FALSE.equals(check(null, email).getEmailAvailable());
+    }
+
+    /**
+     * Checks either or both values; a null or blank value is skipped and reported as null.
+     */
+    public AvailabilityDTO check(String username, String email) {
+        String usernameKey = normalize(username);
+        String emailKey = normalize(email);
+        Filters current = filters;
+
+        boolean usernameMaybeTaken = usernameKey != null && (current == null || current.usernames.mightContain(usernameKey));
+        boolean emailMaybeTaken = emailKey != null && (current == null || current.emails.mightContain(emailKey));
+
+        boolean usernameTaken = false;
+        boolean emailTaken = false;
+        if (usernameMaybeTaken || emailMaybeTaken) {
+            databaseChecks.incrementAndGet();
+            List<UserIdentityDTO> matches = userRepository.findIdentitiesByUsernameOrEmail(
+                    usernameMaybeTaken ? username.trim() : null,
+                    emailMaybeTaken ? email.trim() : null);
+            for (UserIdentityDTO match : matches) {
+                usernameTaken |= usernameMaybeTaken && usernameKey.equals(normalize(match.getUsername()));
+                emailTaken |= emailMaybeTaken && emailKey.equals(normalize(match.getEmail()));
+            }
+        } else {
+            definiteMisses.incrementAndGet();
+        }
+
+        return new AvailabilityDTO(
+                usernameKey == null ? null : !usernameTaken,
+                emailKey == null ? null : !emailTaken);
+    }
+
+    /**
+     * Adds a user that is about to be stored. Adding before the commit is safe: a rolled
+     * back registration only leaves a false positive behind.
+     */
+    public synchronized void recordRegistration(String username, String email) {
+        Filters current = filters;
+        if (current != null) {
+            current.add(normalize(username), normalize(email));
+        }
+        if (pendingDuringRebuild != null) {
+            pendingDuringRebuild.add(new UserIdentityDTO(null, username, email));
+        }
+    }
+
+    public void recordDeletion() {
+        Filters current = filters;
+        if (current != null) {
+            current.deletions.incrementAndGet();
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${uniqueness.rebuild.check-interval:PT10M}",
+            fixedDelayString = "${uniqueness.rebuild.check-interval:PT10M}"
+    )
+    public void rebuildIfStale() {
+        Filters current = filters;
+        if (current != null && (current.deletions.get() > current.capacity * staleRatio
+                || current.insertions.get() > current.capacity)) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        synchronized (this) {
+            if (pendingDuringRebuild != null) {
+                return;                             // Another rebuild is running
+            }
+            pendingDuringRebuild = new ArrayList<>();
+        }
+        Filters rebuilt = null;
+        try {
+            long users = userRepository.count();
+            rebuilt = new Filters(Math.max(minCapacity, users * 2), falsePositiveRate);
+            Long lastId = 0L;
+            List<UserIdentityDTO> batch;
+            do {
+                batch = userRepository.findIdentitiesAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+                for (UserIdentityDTO identity : batch) {
+                    rebuilt.add(normalize(identity.getUsername()), normalize(identity.getEmail()));
+                    lastId = identity.getId();
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not build the uniqueness filters, falling back to database checks", e);
+            rebuilt = null;
+        } finally {
+            synchronized (this) {
+                if (rebuilt != null) {
+                    for (UserIdentityDTO identity : pendingDuringRebuild) {
+                        rebuilt.add(normalize(identity.getUsername()), normalize(identity.getEmail()));
+                    }
+                    filters = rebuilt;
+                }
+                pendingDuringRebuild = null;
+            }
+        }
+        if (rebuilt != null) {
+            LOGGER.info("Uniqueness filters built for {} users (capacity {})", rebuilt.insertions.get(), rebuilt.capacity);
+        }
+    }
+
+    public long getDefiniteMisses() {
+        return definiteMisses.get();
+    }
+
+    public long getDatabaseChecks() {
+        return databaseChecks.get();
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Filters {
+        private final BloomFilter usernames;
+        private final BloomFilter emails;
+        private final long capacity;
+        private final AtomicLong insertions = new AtomicLong();
+        private final AtomicLong deletions = new AtomicLong();
+
+        private Filters(long capacity, double falsePositiveRate) {
+            this.usernames = BloomFilter.create(capacity, falsePositiveRate);
+            this.emails = BloomFilter.create(capacity, falsePositiveRate);
+            this.capacity = capacity;
+        }
+
+        private void add(String username, String email) {
+            if (username != null) {
+                usernames.put(username);
+            }
+            if (email != null) {
+                emails.put(email);
+            }
+            insertions.incrementAndGet();
+        }
+    }
+}
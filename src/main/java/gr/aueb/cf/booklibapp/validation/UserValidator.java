@@ -1,5 +1,6 @@
 package gr.aueb.cf.booklibapp.validation;
 
+import gr.aueb.cf.booklibapp.dto.AvailabilityDTO;
 import gr.aueb.cf.booklibapp.dto.UserRegisterDTO;
 import gr.aueb.cf.booklibapp.service.IUserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,8 +16,8 @@ import java.util.regex.Pattern;
 public class UserValidator implements Validator {
 
     private final IUserService userService;
-    private static final String PASSWORD_PATTERN = "^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*\\W).{6,}$";
-    private static final String EMAIL_PATTERN = "^[a-zA-Z0-9]+([._-][a-zA-Z0-9]+)?@[a-zA-Z]{1,}\\.[a-zA-Z]{2,6}$";
+    private static final Pattern PASSWORD_PATTERN = Pattern.compile("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*\\W).{6,}$");
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[a-zA-Z0-9]+([._-][a-zA-Z0-9]+)?@[a-zA-Z]{1,}\\.[a-zA-Z]{2,6}$");
 
     @Autowired
     public UserValidator(IUserService userService) {
@@ -33,26 +34,36 @@ public class UserValidator implements Validator {
             UserRegisterDTO registerDto = (UserRegisterDTO) target;
 
             // Validate username
+            String usernameToCheck = null;
             ValidationUtils.rejectIfEmptyOrWhitespace(errors, "username", "username.empty", "Username is required");
             if (registerDto.getUsername().length() < 5 || registerDto.getUsername().length() > 25) {
                 errors.rejectValue("username", "username.size", "Username must be between 5 and 25 characters long.");
-            } else if (userService.isUsernameTaken(registerDto.getUsername())) {
-                errors.rejectValue("username", "username.duplicate", "Username is already taken.");
+            } else {
+                usernameToCheck = registerDto.getUsername();
             }
 
             // Validate email
+            String emailToCheck = null;
             ValidationUtils.rejectIfEmptyOrWhitespace(errors, "email", "email.empty", "Email cannot be empty");
             if (!errors.hasFieldErrors("email")) {
                 String email = registerDto.getEmail();
                 if (registerDto.getEmail().length() < 6 || registerDto.getEmail().length() > 32) {
                     errors.rejectValue("email", "email.size", "Email must be between 6 and 32 characters long");
+                } else if (!EMAIL_PATTERN.matcher(email).matches()) {
+                    errors.rejectValue("email", "email.pattern", "Email format is invalid");
                 } else {
-                    Pattern pattern = Pattern.compile(EMAIL_PATTERN);
-                    if (!pattern.matcher(email).matches()) {
-                        errors.rejectValue("email", "email.pattern", "Email format is invalid");
-                    } else if (userService.isEmailTaken(registerDto.getEmail())) {
-                        errors.rejectValue("email", "email.duplicate", "Email is already in use.");
-                    }
+                    emailToCheck = email;
+                }
+            }
+
+            // Check uniqueness of both values at once
+            if (usernameToCheck != null || emailToCheck != null) {
+                AvailabilityDTO availability = userService.checkAvailability(usernameToCheck, emailToCheck);
+                if (Boolean.FALSE.equals(availability.getUsernameAvailable())) {
+                    errors.rejectValue("username", "username.duplicate", "Username is already taken.");
+                }
+                if (Boolean.FALSE.equals(availability.getEmailAvailable())) {
+                    errors.rejectValue("email", "email.duplicate", "Email is already in use.");
                 }
             }
 
@@ -62,11 +73,8 @@ public class UserValidator implements Validator {
                 String password = registerDto.getPassword();
                 if (password.length() < 6 || password.length() > 32) {
                     errors.rejectValue("password", "password.size", "Password must be between 6 and 32 characters long");
-                } else {
-                    Pattern pattern = Pattern.compile(PASSWORD_PATTERN);
-                    if (!pattern.matcher(password).matches()) {
-                        errors.rejectValue("password", "password.pattern", "Password must contain at least one lowercase, one uppercase, one digit, and one special character.");
-                    }
+                } else if (!PASSWORD_PATTERN.matcher(password).matches()) {
+                    errors.rejectValue("password", "password.pattern", "Password must contain at least one lowercase, one uppercase, one digit, and one special character.");
                 }
             }
 
@@ -0,0 +1,44 @@
+-- The schema as Hibernate created it before migrations were introduced. Databases created
+-- that way are baselined at 1.1 and continue from V2, see migration.properties.
+CREATE TABLE users (
+    id BIGINT NOT NULL,
+    date_of_birth DATE,
+    email VARCHAR(255) NOT NULL,
+    firstname VARCHAR(255),
+    lastname VARCHAR(255),
+    password VARCHAR(255) NOT NULL,
+    profile_picture VARCHAR(255),
+    role VARCHAR(255),
+    username VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE books (
+    id VARCHAR(255) NOT NULL,
+    thumbnail_url VARCHAR(512),
+    title VARCHAR(512) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE books_users (
+    book_id VARCHAR(255) NOT NULL,
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (book_id, user_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE token (
+    id INTEGER NOT NULL,
+    expired BIT NOT NULL,
+    revoked BIT NOT NULL,
+    token VARCHAR(255),
+    token_type VARCHAR(255),
+    user_id BIGINT,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+ALTER TABLE users ADD CONSTRAINT UK_6dotkott2kjsp8vw4d0m25fb7 UNIQUE (email);
+ALTER TABLE users ADD CONSTRAINT UK_r43af9ap4edm43mmtq01oddj6 UNIQUE (username);
+ALTER TABLE token ADD CONSTRAINT UK_pddrhgwxnms2aceeku9s2ewy5 UNIQUE (token);
+ALTER TABLE books_users ADD CONSTRAINT FKnfk3hcsn0vriponfclyfhfud5 FOREIGN KEY (user_id) REFERENCES users (id);
+ALTER TABLE books_users ADD CONSTRAINT FKkn0b6th3avh42vj187mjb5hga FOREIGN KEY (book_id) REFERENCES books (id);
+ALTER TABLE token ADD CONSTRAINT FKj8rfw4x0wjjyibfqq566j4qng FOREIGN KEY (user_id) REFERENCES users (id);
@@ -0,0 +1,3 @@
+-- Per-user token epoch. Tokens issued before it carry no epoch claim and are refused anyway
+ALTER TABLE users ADD COLUMN token_epoch INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE token ADD COLUMN epoch INTEGER DEFAULT 0 NOT NULL;
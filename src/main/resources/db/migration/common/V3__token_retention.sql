@@ -0,0 +1,5 @@
+-- Lets TokenRetentionJob purge by expiry and by superseded epoch through an index each.
+-- Rows from before this change have no expiry yet, the job fills it in on its next run
+ALTER TABLE token ADD COLUMN expires_at DATETIME(6);
+CREATE INDEX IDX_TOKEN_EXPIRES_AT ON token (expires_at);
+CREATE INDEX IDX_TOKEN_USER_EPOCH ON token (user_id, epoch);
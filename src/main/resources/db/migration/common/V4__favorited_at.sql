@@ -0,0 +1,4 @@
+-- Orders the favorites pages. Not mapped on the join table, the database fills it in.
+-- Rows already there get the time of the migration
+ALTER TABLE books_users ADD COLUMN favorited_at TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) NOT NULL;
+CREATE INDEX IDX_BOOKS_USERS_USER_FAVORITED_AT ON books_users (user_id, favorited_at, book_id);
@@ -0,0 +1,2 @@
+-- H2 has real sequences, which Hibernate uses instead of the MySQL table
+CREATE SEQUENCE hibernate_sequence START WITH 1 INCREMENT BY 1;
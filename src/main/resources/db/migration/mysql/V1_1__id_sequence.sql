@@ -0,0 +1,3 @@
+-- Hibernate emulates its id sequence with a table on MySQL
+CREATE TABLE hibernate_sequence (next_val BIGINT) ENGINE=InnoDB;
+INSERT INTO hibernate_sequence VALUES (1);
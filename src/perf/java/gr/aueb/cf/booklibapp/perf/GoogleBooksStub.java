@@ -0,0 +1,196 @@
+package gr.aueb.cf.booklibapp.perf;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Google Books {@code /volumes} API.
+ *
+ * <p>Responses are generated deterministically from the query, so repeated searches
+ * return the same volumes. Latency follows a log-normal distribution given by its median
+ * and 99th percentile, and a configurable share of calls fail with 503 or 429.</p>
+ */
+public class GoogleBooksStub {
+
+    static final String BASE_PATH = "/books/v1/";
+    static final int VOLUME_POOL = 5_000;
+
+    private final double mu;
+    private final double sigma;
+    private final double errorRate;
+    private final double throttleRate;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "google-books-stub");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong volumes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong searchBytes = new AtomicLong();
+
+    public GoogleBooksStub(long medianMillis, long p99Millis, double errorRate, double throttleRate) throws IOException {
+        this.mu = Math.log(Math.max(1, medianMillis));
+        this.sigma = Math.max(0.0, (Math.log(Math.max(p99Millis, medianMillis)) - mu) / 2.326);  // z-score of the 99th percentile
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.server.createContext(BASE_PATH, this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + BASE_PATH;
+    }
+
+    public long getSearches() {
+        return searches.get();
+    }
+
+    public long getVolumes() {
+        return volumes.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Body bytes of every successful search response served.
+     */
+    public long getSearchBytes() {
+        return searchBytes.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            sleepLatency();
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < errorRate) {
+                failures.incrementAndGet();
+                respond(exchange, 503, "{\"error\":{\"code\":503,\"message\":\"Backend Error\"}}");
+                return;
+            }
+            if (roll < errorRate + throttleRate) {
+                failures.incrementAndGet();
+                respond(exchange, 429, "{\"error\":{\"code\":429,\"message\":\"Rate Limit Exceeded\"}}");
+                return;
+            }
+
+            // The client may join the base URL and the path with a double slash
+            String path = exchange.getRequestURI().getPath().replaceAll("/+", "/");
+            String volumesPath = BASE_PATH + "volumes";
+            if (path.equals(volumesPath)) {
+                searches.incrementAndGet();
+                String body = searchResponse(queryParams(exchange.getRequestURI().getRawQuery()));
+                searchBytes.addAndGet(body.getBytes(StandardCharsets.UTF_8).length);
+                respond(exchange, 200, body);
+            } else if (path.startsWith(volumesPath + "/")) {
+                volumes.incrementAndGet();
+                respond(exchange, 200, volumeJson(path.substring(volumesPath.length() + 1)));
+            } else {
+                respond(exchange, 404, "{\"error\":{\"code\":404,\"message\":\"Not Found\"}}");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        }
+    }
+
+    private void sleepLatency() throws InterruptedException {
+        double millis = Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+        TimeUnit.MICROSECONDS.sleep((long) (millis * 1000));
+    }
+
+    private static String searchResponse(Map<String, String> params) {
+        String query = params.getOrDefault("q", "");
+        int startIndex = Integer.parseInt(params.getOrDefault("startIndex", "0"));
+        int maxResults = Integer.parseInt(params.getOrDefault("maxResults", "10"));
+        int totalItems = 200 + Math.floorMod(query.hashCode(), 800);
+        boolean partial = params.containsKey("fields");             // Any selector drops the fields searches never read
+
+        StringBuilder json = new StringBuilder(partial ? "{\"totalItems\":" : "{\"kind\":\"books#volumes\",\"totalItems\":").append(totalItems).append(",\"items\":[");
+        int count = Math.max(0, Math.min(maxResults, totalItems - startIndex));
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String id = "vol" + Math.floorMod(query.hashCode() + startIndex + i, VOLUME_POOL);
+            json.append(partial ? partialVolumeJson(id) : volumeJson(id));
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String volumeJson(String id) {
+        int n = Math.floorMod(id.hashCode(), 100_000);
+        return "{\"kind\":\"books#volume\",\"id\":\"" + id + "\",\"volumeInfo\":{"
+                + "\"title\":\"Stub Volume " + id + "\","
+                + "\"authors\":[\"Author " + (n % 997) + "\"],"
+                + "\"publisher\":\"Stub Press\",\"publishedDate\":\"2020\","
+                + "\"description\":\"Generated by the load-test stub. Lorem ipsum dolor sit amet, consectetur adipiscing elit.\","
+                + "\"industryIdentifiers\":[{\"type\":\"ISBN_13\",\"identifier\":\"978" + String.format("%010d", n) + "\"}],"
+                + "\"pageCount\":" + (100 + n % 700) + ","
+                + "\"categories\":[\"Fiction\"],"
+                + "\"imageLinks\":{\"smallThumbnail\":\"http://books.example/" + id + "/s\",\"thumbnail\":\"http://books.example/" + id + "/t\"}"
+                + "}}";
+    }
+
+    private static String partialVolumeJson(String id) {
+        int n = Math.floorMod(id.hashCode(), 100_000);
+        return "{\"id\":\"" + id + "\",\"volumeInfo\":{"
+                + "\"title\":\"Stub Volume " + id + "\","
+                + "\"authors\":[\"Author " + (n % 997) + "\"],"
+                + "\"industryIdentifiers\":[{\"type\":\"ISBN_13\",\"identifier\":\"978" + String.format("%010d", n) + "\"}],"
+                + "\"categories\":[\"Fiction\"],"
+                + "\"imageLinks\":{\"smallThumbnail\":\"http://books.example/" + id + "/s\",\"thumbnail\":\"http://books.example/" + id + "/t\"}"
+                + "}}";
+    }
+
+    private static Map<String, String> queryParams(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package gr.aueb.cf.booklibapp.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load generator: each virtual user is a thread with its own account that
+ * picks the next operation from a weighted mix and records the latency per endpoint.
+ */
+public class LoadGenerator {
+
+    static final String LOGIN = "POST /api/auth/login";
+    static final String SEARCH = "GET /api/books/search";
+    static final String DETAIL = "GET /api/books/{id}";
+    static final String FAVORITE_ADD = "POST /api/users/{userId}/favorites/{bookId}";
+    static final String FAVORITE_REMOVE = "DELETE /api/users/{userId}/remove-from-favorites/{bookId}";
+
+    private static final String PASSWORD = "Perf-Secret1!";
+    private static final int SEARCH_TERMS = 200;
+
+    private final String baseUrl;
+    private final int users;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Duration thinkTime;
+    private final int loginWeight;
+    private final int searchWeight;
+    private final int detailWeight;
+    private final int favoriteWeight;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public LoadGenerator(String baseUrl, int users, Duration warmup, Duration duration, Duration thinkTime,
+                         int loginWeight, int searchWeight, int detailWeight, int favoriteWeight) {
+        this.baseUrl = baseUrl;
+        this.users = users;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.thinkTime = thinkTime;
+        this.loginWeight = loginWeight;
+        this.searchWeight = searchWeight;
+        this.detailWeight = detailWeight;
+        this.favoriteWeight = favoriteWeight;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Registers every virtual user, runs the warm-up and the measured phase, and returns
+     * the merged samples per endpoint.
+     */
+    public Map<String, LatencySamples> run() throws InterruptedException {
+        List<VirtualUser> virtualUsers = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            virtualUsers.add(new VirtualUser(i));
+        }
+        for (VirtualUser user : virtualUsers) {
+            user.register();
+        }
+
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(users);
+        for (VirtualUser user : virtualUsers) {
+            Thread thread = new Thread(() -> {
+                try {
+                    user.loop(measureFrom, stopAt);
+                } finally {
+                    done.countDown();
+                }
+            }, "perf-user-" + user.index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await(warmup.plus(duration).plusMinutes(1).toMillis(), TimeUnit.MILLISECONDS);
+
+        Map<String, LatencySamples> merged = new LinkedHashMap<>();
+        for (String endpoint : List.of(LOGIN, SEARCH, DETAIL, FAVORITE_ADD, FAVORITE_REMOVE)) {
+            merged.put(endpoint, new LatencySamples());
+        }
+        for (VirtualUser user : virtualUsers) {
+            user.samples.forEach((endpoint, samples) -> merged.get(endpoint).addAll(samples));
+        }
+        return merged;
+    }
+
+    private final class VirtualUser {
+        private final int index;
+        private final String email;
+        private final SplittableRandom random;
+        private final Set<String> favorites = new HashSet<>();
+        private final Map<String, LatencySamples> samples = new LinkedHashMap<>();
+        private String accessToken;
+
+        private VirtualUser(int index) {
+            this.index = index;
+            this.email = "perf" + index + "@example.com";
+            this.random = new SplittableRandom(index);
+        }
+
+        private void register() {
+            String body = "{\"username\":\"perfuser" + index + "\",\"email\":\"" + email + "\","
+                    + "\"password\":\"" + PASSWORD + "\",\"confirmPassword\":\"" + PASSWORD + "\"}";
+            HttpResponse<String> response = send(post("/api/auth/register", body));
+            if (response == null || response.statusCode() != 200) {
+                throw new IllegalStateException("Could not register virtual user " + index + ": "
+                        + (response == null ? "no response" : response.statusCode() + " " + response.body()));
+            }
+            accessToken = readAccessToken(response.body());
+        }
+
+        private void loop(long measureFrom, long stopAt) {
+            long now;
+            while ((now = System.nanoTime()) < stopAt) {
+                boolean measured = now >= measureFrom;
+                int roll = random.nextInt(loginWeight + searchWeight + detailWeight + favoriteWeight);
+                if (roll < loginWeight) {
+                    login(measured);
+                } else if (roll < loginWeight + searchWeight) {
+                    timed(SEARCH, measured, authorized("/api/books/search?query=" + encode(searchTerm())));
+                } else if (roll < loginWeight + searchWeight + detailWeight) {
+                    timed(DETAIL, measured, authorized("/api/books/" + volumeId()));
+                } else {
+                    toggleFavorite(measured);
+                }
+                if (!thinkTime.isZero()) {
+                    try {
+                        Thread.sleep(thinkTime.toMillis());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void login(boolean measured) {
+            String body = "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}";
+            HttpResponse<String> response = timed(LOGIN, measured, post("/api/auth/login", body));
+            if (response != null && response.statusCode() == 200) {
+                accessToken = readAccessToken(response.body());     // Login revokes the previous token
+            }
+        }
+
+        private void toggleFavorite(boolean measured) {
+            String bookId = volumeId();
+            if (favorites.contains(bookId)) {
+                HttpResponse<String> response = timed(FAVORITE_REMOVE, measured,
+                        authorized("/api/users/me/remove-from-favorites/" + bookId).DELETE());
+                if (response != null && response.statusCode() == 200) {
+                    favorites.remove(bookId);
+                }
+            } else {
+                HttpResponse<String> response = timed(FAVORITE_ADD, measured,
+                        authorized("/api/users/me/favorites/" + bookId).POST(HttpRequest.BodyPublishers.noBody()));
+                if (response != null && (response.statusCode() == 200 || response.statusCode() == 409)) {
+                    favorites.add(bookId);
+                }
+            }
+        }
+
+        // Skewed towards a few popular terms, like real search traffic
+        private String searchTerm() {
+            double u = random.nextDouble();
+            return "topic " + (int) (SEARCH_TERMS * u * u * u);
+        }
+
+        private String volumeId() {
+            double u = random.nextDouble();
+            return "vol" + (int) (GoogleBooksStub.VOLUME_POOL * u * u);
+        }
+
+        private HttpRequest.Builder authorized(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Authorization", "Bearer " + accessToken);
+        }
+
+        private HttpRequest.Builder post(String path, String json) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json));
+        }
+
+        private HttpResponse<String> timed(String endpoint, boolean measured, HttpRequest.Builder request) {
+            long start = System.nanoTime();
+            HttpResponse<String> response = send(request);
+            if (measured) {
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                boolean success = response != null && response.statusCode() < 400
+                        || response != null && response.statusCode() == 409;
+                samples.computeIfAbsent(endpoint, e -> new LatencySamples()).record(micros, success);
+            }
+            return response;
+        }
+
+        private HttpResponse<String> send(HttpRequest.Builder request) {
+            try {
+                return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        private String readAccessToken(String body) {
+            try {
+                JsonNode json = objectMapper.readTree(body);
+                return json.path("access_token").asText();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unexpected authentication response: " + body, e);
+            }
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
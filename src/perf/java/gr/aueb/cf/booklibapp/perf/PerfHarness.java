@@ -0,0 +1,160 @@
+package gr.aueb.cf.booklibapp.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import gr.aueb.cf.booklibapp.BooklibappApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline end-to-end load test. Starts a {@link GoogleBooksStub}, boots the application
+ * on an in-memory H2 database pointed at the stub, drives it with a {@link LoadGenerator}
+ * and reports throughput and latency percentiles per endpoint.
+ *
+ * <p>Run with {@code ./gradlew perfTest}; every setting is a system property that can be
+ * passed as {@code -Pperf.users=64}, {@code -Pstub.p99-ms=400} and so on. The report is
+ * printed and written to {@code build/reports/perf/results.json}.</p>
+ *
+ * <p>{@code perf.mode} selects the runtime: {@code servlet} (the default), {@code reactive}
+ * for WebFlux and R2DBC, or {@code both} to run the same load against each in turn, on
+ * separate databases, and report them side by side. The servlet runtime can be put on
+ * virtual threads with {@code -Papp.spring.threads.virtual.enabled=true} (Java 21).</p>
+ */
+public final class PerfHarness {
+
+    private PerfHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        GoogleBooksStub stub = new GoogleBooksStub(
+                Long.getLong("stub.median-ms", 80),
+                Long.getLong("stub.p99-ms", 400),
+                Double.parseDouble(System.getProperty("stub.error-rate", "0.01")),
+                Double.parseDouble(System.getProperty("stub.throttle-rate", "0.005")));
+        stub.start();
+
+        List<String> modes = "both".equals(System.getProperty("perf.mode", "servlet"))
+                ? List.of("servlet", "reactive")
+                : List.of(System.getProperty("perf.mode", "servlet"));
+        Duration duration = Duration.parse(System.getProperty("perf.duration", "PT60S"));
+        Map<String, Map<String, LatencySamples>> results = new LinkedHashMap<>();
+        try {
+            for (String mode : modes) {
+                results.put(mode, run(mode, stub, args));
+            }
+            report(results, duration, stub);
+        } finally {
+            stub.stop();
+        }
+    }
+
+    private static Map<String, LatencySamples> run(String mode, GoogleBooksStub stub, String[] args) throws Exception {
+        Path catalogDir = Files.createTempDirectory("booklibapp-perf-catalog");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BooklibappApplication.class)
+                .properties(applicationProperties(mode, stub.baseUrl(), catalogDir))
+                .run(args);
+        try {
+            int port = Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+            LoadGenerator generator = new LoadGenerator(
+                    "http://127.0.0.1:" + port,
+                    Integer.getInteger("perf.users", 32),
+                    Duration.parse(System.getProperty("perf.warmup", "PT15S")),
+                    Duration.parse(System.getProperty("perf.duration", "PT60S")),
+                    Duration.parse(System.getProperty("perf.think-time", "PT0S")),
+                    Integer.getInteger("perf.mix.login", 5),
+                    Integer.getInteger("perf.mix.search", 50),
+                    Integer.getInteger("perf.mix.detail", 30),
+                    Integer.getInteger("perf.mix.favorite", 15));
+            return generator.run();
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Map<String, Object> applicationProperties(String mode, String stubUrl, Path catalogDir) {
+        String database = "booklibapp-perf-" + mode;                        // Each mode starts from an empty database
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.main.web-application-type", mode);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:" + database + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.r2dbc.url", "r2dbc:h2:mem:///" + database + "?options=MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("spring.r2dbc.username", "sa");
+        properties.put("spring.r2dbc.password", "");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("google.books.base-url", stubUrl);
+        properties.put("google.books.apiKey", "perf-api-key");
+        properties.put("jwt.secret-key", "Ym9va2xpYmFwcC1wZXJmLWhhcm5lc3Mtc2VjcmV0LWtleS1ub3QtZm9yLXByb2R1Y3Rpb24=");
+        properties.put("jwt.expiration", "86400000");
+        properties.put("jwt.refresh-token.expiration", "604800000");
+        properties.put("catalog.dir", catalogDir.toString());
+        properties.put("ratelimit.enabled", "false");                               // Measures capacity, not the limits
+        properties.put("google.books.quota.requests-per-minute", "1000000");
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("app."))                    // -Papp.x=y overrides application property x
+                .forEach(name -> properties.put(name.substring(4), System.getProperty(name)));
+        return properties;
+    }
+
+    private static void report(Map<String, Map<String, LatencySamples>> results, Duration duration,
+                               GoogleBooksStub stub) throws IOException {
+        double seconds = duration.toMillis() / 1000.0;
+        Map<String, Object> modes = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Map<String, LatencySamples>> run : results.entrySet()) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            System.out.printf("%n[%s]%n%-58s %8s %7s %9s %8s %8s %8s %8s %8s%n", run.getKey(),
+                    "endpoint", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            for (Map.Entry<String, LatencySamples> entry : run.getValue().entrySet()) {
+                LatencySamples samples = entry.getValue();
+                long[] sorted = samples.sorted();
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("endpoint", entry.getKey());
+                row.put("count", samples.count());
+                row.put("errors", samples.errors());
+                row.put("throughput", samples.count() / seconds);
+                row.put("p50Ms", LatencySamples.percentileMillis(sorted, 50));
+                row.put("p90Ms", LatencySamples.percentileMillis(sorted, 90));
+                row.put("p99Ms", LatencySamples.percentileMillis(sorted, 99));
+                row.put("p999Ms", LatencySamples.percentileMillis(sorted, 99.9));
+                row.put("maxMs", LatencySamples.percentileMillis(sorted, 100));
+                rows.add(row);
+                System.out.printf("%-58s %8d %7d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                        entry.getKey(), samples.count(), samples.errors(), row.get("throughput"),
+                        row.get("p50Ms"), row.get("p90Ms"), row.get("p99Ms"), row.get("p999Ms"), row.get("maxMs"));
+            }
+            modes.put(run.getKey(), rows);
+        }
+        long bytesPerSearch = stub.getSearches() == 0 ? 0 : stub.getSearchBytes() / stub.getSearches();
+        System.out.printf("stub: %d searches (%d bytes each), %d volume lookups, %d injected failures%n",
+                stub.getSearches(), bytesPerSearch, stub.getVolumes(), stub.getFailures());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("durationSeconds", seconds);
+        report.put("users", Integer.getInteger("perf.users", 32));
+        report.put("modes", modes);                                     // Endpoint rows per runtime mode
+        report.put("stubSearches", stub.getSearches());
+        report.put("stubSearchBytes", stub.getSearchBytes());       // Compare with -Papp.google.books.search.partial-response=false
+        report.put("stubBytesPerSearch", bytesPerSearch);
+        report.put("stubVolumes", stub.getVolumes());
+        report.put("stubFailures", stub.getFailures());
+
+        Path reportDir = Paths.get(System.getProperty("perf.report-dir", "build/reports/perf"));
+        Files.createDirectories(reportDir);
+        Path file = reportDir.resolve("results.json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        System.out.println("report written to " + file.toAbsolutePath());
+    }
+}
@@ -0,0 +1,69 @@
+package gr.aueb.cf.booklibapp.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
+import gr.aueb.cf.booklibapp.dto.VolumeInfoDTO;
+import gr.aueb.cf.booklibapp.service.SearchType;
+import gr.aueb.cf.booklibapp.service.cache.SearchKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookCatalogTests {
+
+    private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();  // As configured by Boot
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void journalIsCompactedWhileRunning() throws Exception {
+        BookCatalog catalog = catalog();
+        for (int version = 0; version < 50; version++) {
+            catalog.ingest(book("v1", "Dune, edition " + version));
+            catalog.ingest(book("v2", "Emma, edition " + version));
+        }
+        catalog.close();                                                    // Waits for the writer
+
+        List<String> lines = Files.readAllLines(directory.resolve("volumes.ndjson"));
+        assertThat(lines).hasSizeLessThanOrEqualTo(2 * catalog.size());
+
+        BookCatalog reloaded = catalog();
+        reloaded.load();
+        assertThat(reloaded.findById("v1").getVolumeInfo().getTitle()).isEqualTo("Dune, edition 49");
+        assertThat(reloaded.findById("v2").getVolumeInfo().getTitle()).isEqualTo("Emma, edition 49");
+    }
+
+    @Test
+    void changingAServedOrIngestedVolumeDoesNotChangeTheStoredOne() throws Exception {
+        BookCatalog catalog = catalog();
+        GoogleBookDTO ingested = book("v1", "Dune");
+        catalog.ingest(ingested);
+        ingested.getVolumeInfo().setTitle("Changed by the caller");
+
+        catalog.findById("v1").getVolumeInfo().getAuthors().add("Someone else");
+        catalog.search(SearchKey.of(SearchType.TITLE, "dune"), 10).get(0).getVolumeInfo().setTitle("Changed");
+
+        assertThat(catalog.findById("v1")).isEqualTo(book("v1", "Dune"));
+        assertThat(catalog.search(SearchKey.of(SearchType.TITLE, "dune"), 10)).containsExactly(book("v1", "Dune"));
+        catalog.close();
+    }
+
+    private BookCatalog catalog() {
+        return new BookCatalog(OBJECT_MAPPER, true, directory.toString(), 100, 100);
+    }
+
+    private static GoogleBookDTO book(String id, String title) {
+        VolumeInfoDTO info = new VolumeInfoDTO();
+        info.setTitle(title);
+        info.setAuthors(new ArrayList<>(List.of("Author")));
+        return new GoogleBookDTO(id, info);
+    }
+}
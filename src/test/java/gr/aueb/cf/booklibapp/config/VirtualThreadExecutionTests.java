@@ -0,0 +1,70 @@
+package gr.aueb.cf.booklibapp.config;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the servlet runtime with virtual threads on. Runs only on Java 21 or later, for
+ * example through {@code ./gradlew virtualThreadTest} with a Java 21 toolchain installed.
+ */
+@Tag("virtual-threads")
+@EnabledIf("gr.aueb.cf.booklibapp.config.VirtualThreads#isSupported")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=true"
+)
+class VirtualThreadExecutionTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    @Qualifier("jpaScheduler")
+    private Scheduler jpaScheduler;
+
+    @Autowired
+    @Qualifier("blockingScheduler")
+    private Scheduler blockingScheduler;
+
+    @Test
+    void tomcatServesRequestsOnVirtualThreads() throws Exception {
+        Executor executor = ((TomcatWebServer) context.getWebServer()).getTomcat()
+                .getConnector().getProtocolHandler().getExecutor();
+
+        assertThat(executor).isInstanceOf(ExecutorService.class);
+        assertThat(isVirtual(((ExecutorService) executor).submit(Thread::currentThread).get())).isTrue();
+        assertThat(restTemplate.getForEntity("/actuator/health", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void schedulersRunOnVirtualThreads() throws Exception {
+        assertThat(isVirtual(Mono.fromCallable(Thread::currentThread).subscribeOn(jpaScheduler).block(TIMEOUT))).isTrue();
+        assertThat(isVirtual(Mono.fromCallable(Thread::currentThread).subscribeOn(blockingScheduler).block(TIMEOUT))).isTrue();
+    }
+
+    // Thread.isVirtual() is not part of the Java 11 API the tests compile against
+    private static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+}
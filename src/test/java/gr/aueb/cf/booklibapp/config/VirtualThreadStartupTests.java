@@ -0,0 +1,29 @@
+package gr.aueb.cf.booklibapp.config;
+
+import gr.aueb.cf.booklibapp.BooklibappApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIf;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Below Java 21, switching virtual threads on must stop the application at startup with
+ * a message naming the setting, not fail later on the first request.
+ */
+@Tag("virtual-threads")
+@DisabledIf("gr.aueb.cf.booklibapp.config.VirtualThreads#isSupported")
+class VirtualThreadStartupTests {
+
+    @Test
+    void startupFailsWithoutVirtualThreadSupport() {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(BooklibappApplication.class)
+                .properties("spring.threads.virtual.enabled=true", "server.port=0");
+
+        assertThatThrownBy(application::run)
+                .hasRootCauseInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("spring.threads.virtual.enabled=true needs Java 21 or later, running on Java "
+                        + Runtime.version().feature());
+    }
+}
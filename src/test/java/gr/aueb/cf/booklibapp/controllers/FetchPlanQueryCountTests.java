@@ -0,0 +1,261 @@
+package gr.aueb.cf.booklibapp.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.booklibapp.auth.AuthenticationResponse;
+import gr.aueb.cf.booklibapp.dto.FavoritesPageDTO;
+import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
+import gr.aueb.cf.booklibapp.dto.ImageLinksDTO;
+import gr.aueb.cf.booklibapp.dto.UserLoginDTO;
+import gr.aueb.cf.booklibapp.dto.VolumeInfoDTO;
+import gr.aueb.cf.booklibapp.model.Book;
+import gr.aueb.cf.booklibapp.model.Role;
+import gr.aueb.cf.booklibapp.model.User;
+import gr.aueb.cf.booklibapp.security.jwt.TokenEpochService;
+import gr.aueb.cf.booklibapp.service.GoogleBooksService;
+import gr.aueb.cf.booklibapp.service.quota.QuotaPriority;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts the number of SQL statements behind each HTTP call, counted across the whole
+ * request: the filter chain, the principal lookup, the token epoch check and the endpoint
+ * itself. EAGER associations, cartesian fetches or extra lookups cannot creep back in
+ * unnoticed.
+ */
+@SpringBootTest(properties = "ratelimit.auth.burst=100")
+@AutoConfigureMockMvc
+class FetchPlanQueryCountTests {
+
+    private static final String PASSWORD = "Secret1!";
+    private static final int FAVORITES = 5;
+    private static final int FAVORITERS_PER_BOOK = 3;
+    private static final AtomicInteger READERS = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TokenEpochService tokenEpochService;
+
+    @MockBean
+    private GoogleBooksService booksService;
+
+    private Statistics statistics;
+    private String prefix;
+    private String email;
+    private Long readerId;
+    private String lastResponse;
+
+    @BeforeEach
+    void setUp() {
+        prefix = "reader" + READERS.incrementAndGet();
+        email = prefix + "@example.com";
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User reader = persistUser(prefix, email);
+            readerId = reader.getId();
+            for (int b = 0; b < FAVORITES; b++) {
+                Book book = new Book();
+                book.setId(prefix + "-book-" + b);
+                book.setTitle("Title " + b);
+                book.getFavoritedByUsers().add(reader);
+                for (int f = 0; f < FAVORITERS_PER_BOOK; f++) {
+                    String fan = prefix + "-fan" + b + "x" + f;
+                    book.getFavoritedByUsers().add(persistUser(fan, fan + "@example.com"));
+                }
+                entityManager.persist(book);
+            }
+            Book unfavorited = new Book();
+            unfavorited.setId(prefix + "-new-book");
+            unfavorited.setTitle("Not yet a favorite");
+            entityManager.persist(unfavorited);
+        });
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    void loginIsFiveStatements() throws Exception {
+        statistics.clear();
+        login();
+
+        // Principal, epoch increment and read back, token id and token insert
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(5);
+    }
+
+    @Test
+    void principalIsLoadedOnceAndTheEpochIsKnownAfterLogin() throws Exception {
+        String token = login();
+
+        assertThat(statementsFor(get("/api/users/favorites/count"), token))
+                .isEqualTo(2);                                      // Principal and count
+        assertThat(statementsFor(get("/api/users/favorites/count"), token))
+                .isEqualTo(1);                                      // Principal cached from here on
+
+        tokenEpochService.forget(readerId);
+        assertThat(statementsFor(get("/api/users/favorites/count"), token))
+                .isEqualTo(2);                                      // Epoch reloaded, then count
+    }
+
+    @Test
+    void profileLoadsNoAssociations() throws Exception {
+        String token = warmedUpToken();
+
+        assertThat(statementsFor(get("/api/users/profile"), token)).isEqualTo(1);
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+    }
+
+    @Test
+    void favoritesGraphLoadsBooksButNotTheirFavoriters() throws Exception {
+        String token = warmedUpToken();
+
+        assertThat(statementsFor(get("/api/users/{userId}/favorites", readerId), token,
+                jsonPath("$.favoriteBooks.length()").value(FAVORITES))).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1 + FAVORITES);
+    }
+
+    @Test
+    void eachFavoritesPageIsOneStatement() throws Exception {
+        String token = warmedUpToken();
+
+        assertThat(statementsFor(get("/api/users/favorites").param("size", "3"), token,
+                jsonPath("$.items.length()").value(3))).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        String cursor = objectMapper.readValue(lastResponse, FavoritesPageDTO.class).getNextCursor();
+        assertThat(statementsFor(get("/api/users/favorites").param("size", "3").param("cursor", cursor), token,
+                jsonPath("$.items.length()").value(FAVORITES - 3),
+                jsonPath("$.nextCursor").doesNotExist())).isEqualTo(1);
+    }
+
+    @Test
+    void bookDetailsCheckTheFavoriteInOneStatement() throws Exception {
+        String token = warmedUpToken();
+        String bookId = prefix + "-book-0";
+        when(booksService.findBookById(bookId)).thenReturn(Mono.just(googleBook(bookId)));
+
+        assertThat(statementsFor(get("/api/books/{id}", bookId), token,
+                jsonPath("$.favorited").value(true))).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void addingAFavoriteInsertsOneRowWithoutLoadingEitherSide() throws Exception {
+        String token = warmedUpToken();
+        String bookId = prefix + "-new-book";
+        when(booksService.findBookById(bookId, QuotaPriority.FAVORITE)).thenReturn(Mono.just(googleBook(bookId)));
+
+        // Favorite check, stored book, join row
+        assertThat(statementsFor(post("/api/users/{userId}/favorites/{bookId}", readerId, bookId), token))
+                .isEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+    }
+
+    @Test
+    void removingAFavoriteDeletesOneRowWithoutLoadingEitherSide() throws Exception {
+        String token = warmedUpToken();
+        String bookId = prefix + "-book-0";
+
+        assertThat(statementsFor(delete("/api/users/{userId}/remove-from-favorites/{bookId}", readerId, bookId), token))
+                .isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+        assertThat(statementsFor(get("/api/users/favorites/count"), token,
+                jsonPath("$.count").value(FAVORITES - 1))).isEqualTo(1);
+    }
+
+    // Logs in and makes one request, so that the principal is cached and the epoch known
+    private String warmedUpToken() throws Exception {
+        String token = login();
+        statementsFor(get("/api/users/favorites/count"), token);
+        return token;
+    }
+
+    private String login() throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserLoginDTO(email, PASSWORD))))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsByteArray(), AuthenticationResponse.class)
+                .getAccessToken();
+    }
+
+    private long statementsFor(MockHttpServletRequestBuilder request, String token, ResultMatcher... matchers) throws Exception {
+        statistics.clear();
+        MvcResult result = mockMvc.perform(request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();       // Reactive endpoints complete here
+        }
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        for (ResultMatcher matcher : matchers) {
+            matcher.match(result);
+        }
+        lastResponse = result.getResponse().getContentAsString();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User persistUser(String username, String userEmail) {
+        User user = User.builder()
+                .username(username)
+                .email(userEmail)
+                .password(passwordEncoder.encode(PASSWORD))
+                .role(Role.USER)
+                .build();
+        entityManager.persist(user);
+        return user;
+    }
+
+    private static GoogleBookDTO googleBook(String id) {
+        VolumeInfoDTO info = new VolumeInfoDTO();
+        info.setTitle("Title of " + id);
+        info.setImageLinks(new ImageLinksDTO("http://books.google.com/small/" + id, "http://books.google.com/thumb/" + id));
+        return new GoogleBookDTO(id, info);
+    }
+}
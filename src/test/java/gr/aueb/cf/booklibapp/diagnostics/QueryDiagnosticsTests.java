@@ -0,0 +1,91 @@
+package gr.aueb.cf.booklibapp.diagnostics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.booklibapp.dto.UserLoginDTO;
+import gr.aueb.cf.booklibapp.model.Role;
+import gr.aueb.cf.booklibapp.model.User;
+import gr.aueb.cf.booklibapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * With a statement budget of zero every request that touches the database is reported,
+ * together with the repository methods its statements came from.
+ */
+@SpringBootTest(properties = {
+        "diagnostics.queries.enabled=true",
+        "diagnostics.queries.statement-budget=0"
+})
+@AutoConfigureMockMvc
+class QueryDiagnosticsTests {
+
+    private static final String EMAIL = "diagnosed@example.com";
+    private static final String PASSWORD = "Secret1!";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private QueryDiagnostics diagnostics;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void requestStatementsAreAttributedToTheRepositoryMethods() throws Exception {
+        userRepository.save(User.builder()
+                .username("diagnosed")
+                .email(EMAIL)
+                .password(passwordEncoder.encode(PASSWORD))
+                .role(Role.USER)
+                .build());
+
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserLoginDTO(EMAIL, PASSWORD))))
+                .andExpect(status().isOk());
+
+        Map<String, Object> login = diagnostics.getOverBudgetRequests().stream()
+                .filter(request -> "POST /api/auth/login".equals(request.get("request")))
+                .findFirst()
+                .orElseThrow();
+        Map<String, Integer> byOrigin = (Map<String, Integer>) login.get("statementsByOrigin");
+        assertThat(byOrigin)
+                .containsEntry("UserRepository.findPrincipalByEmail", 1)
+                .containsEntry("UserRepository.incrementTokenEpoch", 1);
+        assertThat(diagnostics.getStatementsByOrigin()).containsKey("UserRepository.findPrincipalByEmail");
+    }
+
+    @Test
+    void queriesEndpointIsServedToLoopbackCallersOnly() throws Exception {
+        mockMvc.perform(get("/actuator/queries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hibernate.enabled").value(true));
+
+        mockMvc.perform(get("/actuator/queries").with(request -> {
+                    request.setRemoteAddr("203.0.113.7");
+                    return request;
+                }))
+                .andExpect(status().isForbidden());
+    }
+}
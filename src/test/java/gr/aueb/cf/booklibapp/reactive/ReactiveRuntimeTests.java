@@ -0,0 +1,183 @@
+package gr.aueb.cf.booklibapp.reactive;
+
+import gr.aueb.cf.booklibapp.auth.AuthenticationResponse;
+import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
+import gr.aueb.cf.booklibapp.dto.UserLoginDTO;
+import gr.aueb.cf.booklibapp.dto.VolumeInfoDTO;
+import gr.aueb.cf.booklibapp.model.Role;
+import gr.aueb.cf.booklibapp.model.User;
+import gr.aueb.cf.booklibapp.repository.UserRepository;
+import gr.aueb.cf.booklibapp.security.jwt.JwtService;
+import gr.aueb.cf.booklibapp.service.GoogleBooksService;
+import gr.aueb.cf.booklibapp.service.quota.QuotaPriority;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the WebFlux and R2DBC runtime end to end: login, the reactive JWT filter,
+ * inbound rate limiting and the favorites endpoints.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.main.web-application-type=reactive",
+                "spring.datasource.url=jdbc:h2:mem:booklibapp-reactive;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "spring.r2dbc.url=r2dbc:h2:mem:///booklibapp-reactive?options=MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "spring.r2dbc.username=sa",
+                "ratelimit.auth.burst=100",
+                "ratelimit.api.requests-per-minute=1",
+                "ratelimit.api.burst=" + ReactiveRuntimeTests.API_BURST
+        }
+)
+class ReactiveRuntimeTests {
+
+    static final int API_BURST = 8;
+    private static final String PASSWORD = "Secret1!";
+    private static final String BOOK_ID = "reactive-book";
+    private static final String COUNT_PATH = "/api/users/favorites/count";
+
+    @Autowired
+    private WebTestClient webClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @MockBean
+    private GoogleBooksService booksService;
+
+    @Value("${jwt.secret-key}")
+    private String secretKey;
+
+    @Test
+    void loginIssuesATokenTheJwtFilterAccepts() {
+        User user = createUser("reactive-login");
+
+        String token = login(user.getEmail());
+
+        countFavorites(token).expectStatus().isOk()
+                .expectBody().jsonPath("$.count").isEqualTo(0);
+    }
+
+    @Test
+    void loginWithAWrongPasswordIsRejected() {
+        User user = createUser("reactive-wrong-password");
+
+        webClient.post().uri("/api/auth/login")
+                .bodyValue(new UserLoginDTO(user.getEmail(), "Wrong1!"))
+                .exchange()
+                .expectStatus().value(status -> assertThat(status).isNotEqualTo(HttpStatus.OK.value()));
+    }
+
+    @Test
+    void missingOrForgedTokensAreRejected() {
+        webClient.get().uri(COUNT_PATH).exchange().expectStatus().isForbidden();
+        countFavorites("not-a-jwt").expectStatus().isForbidden();
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        User user = createUser("reactive-expired");
+        String expired = Jwts.builder()
+                .setClaims(Map.of(JwtService.USER_ID_CLAIM, user.getId().toString(), JwtService.TOKEN_EPOCH_CLAIM, user.getTokenEpoch()))
+                .setSubject(user.getEmail())
+                .setIssuedAt(new Date(System.currentTimeMillis() - 120_000))
+                .setExpiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey)), SignatureAlgorithm.HS256)
+                .compact();
+
+        countFavorites(expired).expectStatus().isForbidden();
+    }
+
+    @Test
+    void tokenFromAnEarlierEpochIsRejected() {
+        User user = createUser("reactive-revoked");
+        String first = login(user.getEmail());
+        String second = login(user.getEmail());                     // Bumps the token epoch
+
+        countFavorites(first).expectStatus().isForbidden();
+        countFavorites(second).expectStatus().isOk();
+    }
+
+    @Test
+    void requestsBeyondTheBurstAreRateLimited() {
+        User user = createUser("reactive-rate-limited");
+        String token = login(user.getEmail());
+
+        for (int i = 0; i < API_BURST; i++) {
+            countFavorites(token).expectStatus().isOk();
+        }
+        countFavorites(token).expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER);
+    }
+
+    @Test
+    void favoritesCanBeAddedAndRemoved() {
+        User user = createUser("reactive-favorites");
+        String token = login(user.getEmail());
+        GoogleBookDTO book = new GoogleBookDTO(BOOK_ID, new VolumeInfoDTO());
+        book.getVolumeInfo().setTitle("Reactive Streams");
+        when(booksService.findBookById(BOOK_ID, QuotaPriority.FAVORITE)).thenReturn(Mono.just(book));
+
+        String favoritePath = "/api/users/" + user.getId() + "/favorites/" + BOOK_ID;
+        String removePath = "/api/users/" + user.getId() + "/remove-from-favorites/" + BOOK_ID;
+
+        withToken(webClient.post().uri(favoritePath), token).exchange().expectStatus().isOk();
+        withToken(webClient.post().uri(favoritePath), token).exchange().expectStatus().isEqualTo(HttpStatus.CONFLICT);
+        countFavorites(token).expectBody().jsonPath("$.count").isEqualTo(1);
+
+        withToken(webClient.delete().uri(removePath), token).exchange().expectStatus().isOk();
+        withToken(webClient.delete().uri(removePath), token).exchange().expectStatus().isNotFound();
+        countFavorites(token).expectBody().jsonPath("$.count").isEqualTo(0);
+    }
+
+    private User createUser(String name) {
+        return userRepository.save(User.builder()
+                .username(name)
+                .email(name + "@example.com")
+                .password(passwordEncoder.encode(PASSWORD))
+                .role(Role.USER)
+                .build());
+    }
+
+    private String login(String email) {
+        AuthenticationResponse response = webClient.post().uri("/api/auth/login")
+                .bodyValue(new UserLoginDTO(email, PASSWORD))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(AuthenticationResponse.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(response).isNotNull();
+        return response.getAccessToken();
+    }
+
+    private WebTestClient.ResponseSpec countFavorites(String token) {
+        return withToken(webClient.get().uri(COUNT_PATH), token).exchange();
+    }
+
+    private static <S extends WebTestClient.RequestHeadersSpec<?>> S withToken(S request, String token) {
+        request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,48 @@
+package gr.aueb.cf.booklibapp.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "metrics.scrape-token=" + ActuatorAccessTests.SCRAPE_TOKEN)
+@AutoConfigureMockMvc
+@AutoConfigureMetrics                                   // Tests leave the Prometheus registry out otherwise
+class ActuatorAccessTests {
+
+    static final String SCRAPE_TOKEN = "scrape-secret";
+    private static final String PROMETHEUS = "/actuator/prometheus";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void prometheusIsServedToTheHostAndToTheScraper() throws Exception {
+        mockMvc.perform(get(PROMETHEUS)).andExpect(status().isOk());
+        mockMvc.perform(get(PROMETHEUS).with(remote())
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + SCRAPE_TOKEN))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void prometheusIsRefusedToOtherRemoteCallers() throws Exception {
+        mockMvc.perform(get(PROMETHEUS).with(remote())).andExpect(status().isForbidden());
+        mockMvc.perform(get(PROMETHEUS).with(remote())
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer wrong-token"))
+                .andExpect(status().isForbidden());
+    }
+
+    private static RequestPostProcessor remote() {
+        return request -> {
+            request.setRemoteAddr("203.0.113.7");
+            return request;
+        };
+    }
+}
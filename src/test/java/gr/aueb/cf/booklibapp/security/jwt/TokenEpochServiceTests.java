@@ -0,0 +1,98 @@
+package gr.aueb.cf.booklibapp.security.jwt;
+
+import gr.aueb.cf.booklibapp.repository.UserRepository;
+import gr.aueb.cf.booklibapp.service.exceptions.UserNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenEpochServiceTests {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TokenEpochService service = new TokenEpochService(userRepository, 2, Duration.ofMinutes(15));
+
+    @Test
+    void epochIsLoadedOnceThenServedFromTheCache() {
+        when(userRepository.findTokenEpochById(1L)).thenReturn(Optional.of(3));
+
+        assertThat(service.isCurrent(1L, 3)).isTrue();
+        assertThat(service.isCurrent(1L, 2)).isFalse();
+        assertThat(service.currentEpoch(1L)).isEqualTo(3);
+
+        verify(userRepository, times(1)).findTokenEpochById(1L);
+    }
+
+    @Test
+    void epochsOnlyMoveForward() {
+        assertThat(service.remember(1L, 5)).isEqualTo(5);
+        assertThat(service.remember(1L, 4)).isEqualTo(5);
+        assertThat(service.getIfKnown(1L)).isEqualTo(5);
+    }
+
+    @Test
+    void missingUserIsNeitherCurrentNorCached() {
+        when(userRepository.findTokenEpochById(9L)).thenReturn(Optional.empty());
+
+        assertThat(service.isCurrent(9L, 0)).isFalse();
+        assertThat(service.getIfKnown(9L)).isNull();
+        assertThatThrownBy(() -> service.currentEpoch(9L)).isInstanceOf(UserNotFoundException.class);
+    }
+
+    @Test
+    void revokedEpochIsCachedOnlyOnceTheTransactionCommits() {
+        when(userRepository.findTokenEpochById(1L)).thenReturn(Optional.of(4));
+        service.remember(1L, 3);
+
+        assertThat(inTransaction(() -> service.revokeAll(1L), false)).isEqualTo(4);
+        assertThat(service.getIfKnown(1L)).isEqualTo(3);                       // Rolled back, old tokens still valid
+
+        assertThat(inTransaction(() -> service.revokeAll(1L), true)).isEqualTo(4);
+        assertThat(service.getIfKnown(1L)).isEqualTo(4);
+    }
+
+    @Test
+    void forgottenUsersAreReloadedAndTheCacheStaysBounded() {
+        when(userRepository.findTokenEpochById(1L)).thenReturn(Optional.of(7));
+        service.remember(1L, 7);
+
+        service.forget(1L);
+        assertThat(service.getIfKnown(1L)).isNull();
+        assertThat(service.isCurrent(1L, 7)).isTrue();
+
+        for (long userId = 100; userId < 110; userId++) {
+            service.remember(userId, 0);
+        }
+        service.getCache().cleanUp();
+        assertThat(service.getCache().estimatedSize()).isLessThanOrEqualTo(2);
+    }
+
+    // Stands in for the transaction manager, which the plain service instance does not go through
+    private static int inTransaction(Supplier<Integer> work, boolean commit) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            int result = work.get();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (commit) {
+                TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+            }
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, commit
+                    ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+            return result;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
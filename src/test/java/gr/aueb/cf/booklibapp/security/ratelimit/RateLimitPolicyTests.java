@@ -0,0 +1,41 @@
+package gr.aueb.cf.booklibapp.security.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitPolicyTests {
+
+    private static final String ADDRESS = "203.0.113.7";
+    private static final int AVAILABILITY_BURST = 30;
+    private static final int AUTH_BURST = 10;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RateLimitPolicy policy = new RateLimitPolicy(registry, true, 4, Duration.ofMinutes(10),
+            60, 20, 120, 30, 120, AVAILABILITY_BURST, 30, AUTH_BURST, 300, 60);
+
+    @Test
+    void availabilityChecksHaveTheirOwnMoreGenerousLimit() {
+        for (int i = 0; i < AVAILABILITY_BURST; i++) {
+            assertThat(policy.tryAcquire("/api/auth/availability", null, ADDRESS)).isZero();
+        }
+        assertThat(policy.tryAcquire("/api/auth/availability", null, ADDRESS)).isPositive();
+        assertThat(registry.counter("booklib.ratelimit.rejected", "rule", "availability").count()).isEqualTo(1);
+
+        assertThat(policy.tryAcquire("/api/auth/login", null, ADDRESS)).isZero();      // Login budget untouched
+    }
+
+    @Test
+    void availabilityChecksStillWorkOnceLoginsAreLimited() {
+        for (int i = 0; i < AUTH_BURST; i++) {
+            assertThat(policy.tryAcquire("/api/auth/login", null, ADDRESS)).isZero();
+        }
+        assertThat(policy.tryAcquire("/api/auth/register", null, ADDRESS)).isPositive();
+
+        assertThat(policy.tryAcquire("/api/auth/availability", null, ADDRESS)).isZero();
+        assertThat(registry.counter("booklib.ratelimit.rejected", "rule", "auth").count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,93 @@
+package gr.aueb.cf.booklibapp.service;
+
+import gr.aueb.cf.booklibapp.model.Book;
+import gr.aueb.cf.booklibapp.model.Role;
+import gr.aueb.cf.booklibapp.model.User;
+import gr.aueb.cf.booklibapp.repository.BookRepository;
+import gr.aueb.cf.booklibapp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Runs the reactive favorites chains of {@link UserServiceImpl} from a non-blocking thread,
+ * as happens when they follow a Google Books call, with BlockHound watching for JPA work
+ * that was not moved to the JPA scheduler. BlockHound cannot be uninstalled, so these tests
+ * run only in the {@code blockHoundTest} task, in a JVM of their own.
+ */
+@SpringBootTest
+@Tag("blockhound")
+class BlockingCallDetectionTests {
+
+    private static final String EMAIL = "nonblocking@example.com";
+    private static final String BOOK_ID = "nonblocking-book";
+
+    @Autowired
+    private UserServiceImpl userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @BeforeAll
+    static void installBlockHound() {
+        BlockHound.install();
+    }
+
+    @Test
+    void blockingOnANonBlockingThreadIsDetected() {
+        Mono<Long> sleeping = Mono.delay(Duration.ofMillis(1))
+                .map(tick -> {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return tick;
+                });
+
+        assertThat(Exceptions.unwrap(catchThrowable(sleeping::block))).isInstanceOf(BlockingOperationError.class);
+    }
+
+    @Test
+    void favoriteChainsDoNotBlockTheCallingThread() {
+        userRepository.save(User.builder()
+                .username("nonblocking")
+                .email(EMAIL)
+                .password("{bcrypt}hash")
+                .role(Role.USER)
+                .build());
+        Book book = new Book();
+        book.setId(BOOK_ID);
+        book.setTitle("Non-blocking");
+        bookRepository.save(book);
+
+        // Mono.delay emits on the parallel scheduler, which BlockHound treats as non-blocking
+        onNonBlockingThread(Mono.defer(() -> userService.addBookToFavorites(EMAIL, BOOK_ID)).then(Mono.just(true)));
+        assertThat(onNonBlockingThread(userService.findFavoriteBookIds(EMAIL))).containsExactly(BOOK_ID);
+        assertThat(onNonBlockingThread(userService.isFavorite(EMAIL, BOOK_ID))).isTrue();
+
+        onNonBlockingThread(Mono.defer(() -> userService.removeBookFromFavorites(EMAIL, BOOK_ID)).then(Mono.just(true)));
+        assertThat(onNonBlockingThread(userService.findFavoriteBookIds(EMAIL))).isEmpty();
+    }
+
+    private static <T> T onNonBlockingThread(Mono<T> call) {
+        return Mono.delay(Duration.ofMillis(1), Schedulers.parallel())
+                .flatMap(tick -> call)
+                .block(Duration.ofSeconds(10));
+    }
+}
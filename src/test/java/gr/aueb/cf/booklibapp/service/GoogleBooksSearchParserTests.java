@@ -0,0 +1,113 @@
+package gr.aueb.cf.booklibapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
+import gr.aueb.cf.booklibapp.dto.GoogleBooksSearchResponse;
+import gr.aueb.cf.booklibapp.dto.VolumeInfoDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GoogleBooksSearchParserTests {
+
+    // What Google returns for GoogleBooksSearchParser.FIELDS
+    private static final String PARTIAL = "{\"totalItems\":2,\"items\":["
+            + "{\"id\":\"a\",\"volumeInfo\":{\"title\":\"Dune\",\"authors\":[\"Frank Herbert\"],"
+            + "\"categories\":[\"Fiction\"],"
+            + "\"industryIdentifiers\":[{\"type\":\"ISBN_10\",\"identifier\":\"0441013597\"},"
+            + "{\"type\":\"ISBN_13\",\"identifier\":\"9780441013593\"}],"
+            + "\"imageLinks\":{\"smallThumbnail\":\"http://small/a\",\"thumbnail\":\"http://thumb/a\"}}},"
+            + "{\"id\":\"b\",\"volumeInfo\":{\"title\":\"Emma\"}}]}";
+
+    // The same volumes when Google ignores the selector
+    private static final String FULL = "{\"kind\":\"books#volumes\",\"totalItems\":2,\"items\":["
+            + "{\"kind\":\"books#volume\",\"id\":\"a\",\"etag\":\"x\",\"volumeInfo\":{\"title\":\"Dune\","
+            + "\"authors\":[\"Frank Herbert\"],\"publisher\":\"Ace\",\"publishedDate\":\"2005\","
+            + "\"description\":\"Set on the desert planet Arrakis, {\\\"quoted\\\"} [brackets] included.\","
+            + "\"industryIdentifiers\":[{\"type\":\"ISBN_10\",\"identifier\":\"0441013597\"},"
+            + "{\"type\":\"ISBN_13\",\"identifier\":\"9780441013593\"}],"
+            + "\"readingModes\":{\"text\":false,\"image\":false},\"pageCount\":528,\"categories\":[\"Fiction\"],"
+            + "\"imageLinks\":{\"smallThumbnail\":\"http://small/a\",\"thumbnail\":\"http://thumb/a\",\"large\":\"http://large/a\"}},"
+            + "\"saleInfo\":{\"country\":\"GR\",\"offers\":[{\"finskyOfferType\":1}]}},"
+            + "{\"kind\":\"books#volume\",\"id\":\"b\",\"volumeInfo\":{\"title\":\"Emma\",\"description\":\"A novel.\"}}]}";
+
+    @Test
+    void partialPayloadIsReadIntoSlimDtos() throws IOException {
+        GoogleBooksSearchResponse response = parse(PARTIAL);
+
+        assertThat(response.getTotalItems()).isEqualTo(2);
+        assertThat(response.getItems()).extracting(GoogleBookDTO::getId).containsExactly("a", "b");
+        VolumeInfoDTO info = response.getItems().get(0).getVolumeInfo();
+        assertThat(info.getTitle()).isEqualTo("Dune");
+        assertThat(info.getAuthors()).containsExactly("Frank Herbert");
+        assertThat(info.getCategories()).containsExactly("Fiction");
+        assertThat(info.getIsbn13()).isEqualTo("9780441013593");
+        assertThat(info.getImageLinks().getThumbnail()).isEqualTo("http://thumb/a");
+        assertThat(response.getItems().get(1).getVolumeInfo().getAuthors()).isNull();
+    }
+
+    @Test
+    void fullPayloadSkipsDescriptionsAndUnusedFields() throws IOException {
+        GoogleBooksSearchResponse full = parse(FULL);
+
+        assertThat(full).isEqualTo(parse(PARTIAL));
+        assertThat(full.getItems()).extracting(book -> book.getVolumeInfo().getDescription()).containsOnlyNulls();
+        assertThat(full.getItems()).extracting(book -> book.getVolumeInfo().getPageCount()).containsOnlyNulls();
+        assertThat(PARTIAL.getBytes(StandardCharsets.UTF_8)).hasSizeLessThan(FULL.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void fieldsSearchesLeaveUnsetAreLeftOutOfResponses() throws IOException {
+        GoogleBooksSearchResponse full = parse(FULL);
+
+        assertThat(new ObjectMapper().writeValueAsString(full.getItems().get(1)))
+                .isEqualTo("{\"id\":\"b\",\"volumeInfo\":{\"title\":\"Emma\"}}");
+    }
+
+    @Test
+    void missingAndNullObjectsAreLeftNull() throws IOException {
+        GoogleBooksSearchResponse response = parse("{\"items\":["
+                + "{\"id\":\"no-info\"},"
+                + "{\"id\":\"null-info\",\"volumeInfo\":null},"
+                + "{\"id\":\"nulls\",\"volumeInfo\":{\"title\":\"T\",\"authors\":null,\"imageLinks\":null,"
+                + "\"industryIdentifiers\":null,\"categories\":null}}]}");
+
+        assertThat(response.getTotalItems()).isNull();
+        assertThat(response.getItems()).extracting(GoogleBookDTO::getId).containsExactly("no-info", "null-info", "nulls");
+        assertThat(response.getItems().get(0).getVolumeInfo()).isNull();
+        assertThat(response.getItems().get(1).getVolumeInfo()).isNull();
+        VolumeInfoDTO info = response.getItems().get(2).getVolumeInfo();
+        assertThat(info.getTitle()).isEqualTo("T");
+        assertThat(info.getAuthors()).isNull();
+        assertThat(info.getImageLinks()).isNull();
+        assertThat(info.getIsbn13()).isNull();
+    }
+
+    @Test
+    void nullElementsDoNotTruncateTheItems() throws IOException {
+        GoogleBooksSearchResponse response = parse("{\"items\":[null,{\"id\":\"a\"},null,"
+                + "{\"id\":\"b\",\"volumeInfo\":{\"industryIdentifiers\":[null,{\"type\":\"ISBN_13\",\"identifier\":\"9780000000001\"}]}}"
+                + "],\"totalItems\":4}");
+
+        assertThat(response.getItems()).extracting(GoogleBookDTO::getId).containsExactly("a", "b");
+        assertThat(response.getItems().get(1).getVolumeInfo().getIsbn13()).isEqualTo("9780000000001");
+        assertThat(response.getTotalItems()).isEqualTo(4);             // Read after the array, so nothing was left unconsumed
+    }
+
+    @Test
+    void nonObjectRootIsADecodingError() {
+        assertThatThrownBy(() -> parse("[{\"id\":\"a\"}]")).isInstanceOf(DecodingException.class);
+        assertThatThrownBy(() -> parse("null")).isInstanceOf(DecodingException.class);
+        assertThatThrownBy(() -> parse("")).isInstanceOf(DecodingException.class);
+    }
+
+    private static GoogleBooksSearchResponse parse(String json) throws IOException {
+        return GoogleBooksSearchParser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,127 @@
+package gr.aueb.cf.booklibapp.service;
+
+import gr.aueb.cf.booklibapp.dto.UserLoginDTO;
+import gr.aueb.cf.booklibapp.model.Role;
+import gr.aueb.cf.booklibapp.model.Token;
+import gr.aueb.cf.booklibapp.model.TokenType;
+import gr.aueb.cf.booklibapp.model.User;
+import gr.aueb.cf.booklibapp.repository.TokenRepository;
+import gr.aueb.cf.booklibapp.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares login cost for a user with a single session and one with 10k sessions: the
+ * statements must be the same and the time per login within a small factor.
+ * Run with {@code ./gradlew benchmarkTest}.
+ */
+@SpringBootTest
+@Tag("benchmark")
+class LoginFastPathBenchmarkTests {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoginFastPathBenchmarkTests.class);
+    private static final String PASSWORD = "Secret1!";
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+    private static final double MAX_SLOWDOWN = 3.0;                         // Room for timer noise, not for a scan of the sessions
+
+    @Autowired
+    private UserServiceImpl userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void loginCostIsFlatInTheNumberOfSessions() {
+        LoginCost oneSession = measure("single", 1);
+        LoginCost manySessions = measure("many", 10_000);
+
+        LOGGER.info("Login with 1 session: {} ms, {} statements", format(oneSession.millis), oneSession.statements);
+        LOGGER.info("Login with 10000 sessions: {} ms, {} statements", format(manySessions.millis), manySessions.statements);
+
+        assertThat(manySessions.statements).isEqualTo(oneSession.statements);
+        assertThat(manySessions.millis).isLessThanOrEqualTo(oneSession.millis * MAX_SLOWDOWN);
+    }
+
+    private LoginCost measure(String name, int sessions) {
+        String email = name + "@example.com";
+        User user = userRepository.save(User.builder()
+                .username(name + "-user")
+                .email(email)
+                .password(passwordEncoder.encode(PASSWORD))
+                .role(Role.USER)
+                .build());
+        seedSessions(user, sessions);
+
+        UserLoginDTO login = new UserLoginDTO(email, PASSWORD);
+        for (int i = 0; i < WARMUP; i++) {
+            userService.authenticateUser(login);
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            userService.authenticateUser(login);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return new LoginCost(
+                TimeUnit.NANOSECONDS.toMicros(elapsed) / 1000.0 / ITERATIONS,
+                (double) statistics.getPrepareStatementCount() / ITERATIONS
+        );
+    }
+
+    private void seedSessions(User user, int sessions) {
+        List<Token> tokens = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            tokens.add(Token.builder()
+                    .user(user)
+                    .token(user.getEmail() + "-session-" + i)
+                    .tokenType(TokenType.BEARER)
+                    .expiresAt(Instant.now().plusSeconds(3600))
+                    .build());
+        }
+        tokenRepository.saveAll(tokens);
+    }
+
+    private static String format(double millis) {
+        return String.format(Locale.ROOT, "%.2f", millis);
+    }
+
+    private static class LoginCost {
+        private final double millis;
+        private final double statements;
+
+        LoginCost(double millis, double statements) {
+            this.millis = millis;
+            this.statements = statements;
+        }
+    }
+}
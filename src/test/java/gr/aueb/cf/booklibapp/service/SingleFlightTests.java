@@ -0,0 +1,37 @@
+package gr.aueb.cf.booklibapp.service;
+
+import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
+import gr.aueb.cf.booklibapp.dto.VolumeInfoDTO;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTests {
+
+    private final SingleFlight<String, GoogleBookDTO> flights = new SingleFlight<>(GoogleBookDTO::copyOf);
+
+    @Test
+    void coalescedSubscribersEachGetTheirOwnCopy() {
+        Sinks.One<GoogleBookDTO> upstream = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<GoogleBookDTO> first = new AtomicReference<>();
+        AtomicReference<GoogleBookDTO> second = new AtomicReference<>();
+
+        flights.execute("v1", () -> Mono.fromRunnable(calls::incrementAndGet).then(upstream.asMono()))
+                .subscribe(first::set);
+        flights.execute("v1", () -> Mono.fromRunnable(calls::incrementAndGet).then(upstream.asMono()))
+                .subscribe(second::set);
+        upstream.tryEmitValue(new GoogleBookDTO("v1", new VolumeInfoDTO()));
+
+        assertThat(calls).hasValue(1);
+        assertThat(flights.getCoalescedCalls()).isEqualTo(1);
+        assertThat(first.get()).isEqualTo(second.get()).isNotSameAs(second.get());
+        assertThat(first.get().getVolumeInfo()).isNotSameAs(second.get().getVolumeInfo());
+        assertThat(flights.getInFlight()).isZero();
+    }
+}
@@ -0,0 +1,86 @@
+package gr.aueb.cf.booklibapp.service.cache;
+
+import gr.aueb.cf.booklibapp.dto.GoogleBookDTO;
+import gr.aueb.cf.booklibapp.dto.ImageLinksDTO;
+import gr.aueb.cf.booklibapp.dto.IndustryIdentifierDTO;
+import gr.aueb.cf.booklibapp.dto.VolumeInfoDTO;
+import gr.aueb.cf.booklibapp.service.SearchType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CaffeineBookSearchCacheTests {
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private final CaffeineBookSearchCache cache =
+            new CaffeineBookSearchCache(100, 100, TTL, TTL, TTL, TTL, TTL, TTL, TTL);
+
+    @Test
+    void changingAServedVolumeDoesNotChangeTheCachedOne() {
+        cache.putVolume("v1", book("v1"));
+
+        GoogleBookDTO served = cache.getVolume("v1");
+        served.getVolumeInfo().setTitle("Changed");
+        served.getVolumeInfo().getAuthors().add("Someone else");
+        served.getVolumeInfo().getImageLinks().setThumbnail("http://example.com/changed");
+        served.getVolumeInfo().getIndustryIdentifiers().get(0).setIdentifier("0000000000000");
+
+        assertThat(cache.getVolume("v1")).isEqualTo(book("v1")).isNotSameAs(served);
+    }
+
+    @Test
+    void changingAStoredVolumeAfterwardsDoesNotChangeTheCachedOne() {
+        GoogleBookDTO stored = book("v1");
+        cache.putVolume("v1", stored);
+
+        stored.getVolumeInfo().setTitle("Changed");
+        stored.setVolumeInfo(null);
+
+        assertThat(cache.getVolume("v1")).isEqualTo(book("v1"));
+    }
+
+    @Test
+    void changingAServedSearchDoesNotChangeTheCachedOne() {
+        SearchKey key = SearchKey.of(SearchType.TITLE, "dune");
+        List<GoogleBookDTO> stored = new ArrayList<>(List.of(book("v1"), book("v2")));
+        cache.putSearch(key, stored);
+        stored.clear();
+
+        List<GoogleBookDTO> served = cache.getSearch(key);
+        served.get(0).getVolumeInfo().setTitle("Changed");
+
+        assertThat(cache.getSearch(key)).containsExactly(book("v1"), book("v2"));
+    }
+
+    @Test
+    void booksWithMissingPartsAreCopiedAsTheyAre() {
+        GoogleBookDTO noInfo = new GoogleBookDTO("v1", null);
+        GoogleBookDTO sparse = new GoogleBookDTO("v2", new VolumeInfoDTO());
+
+        cache.putVolume("v1", noInfo);
+        cache.putVolume("v2", sparse);
+
+        assertThat(cache.getVolume("v1")).isEqualTo(noInfo);
+        assertThat(cache.getVolume("v2")).isEqualTo(sparse);
+        assertThat(cache.getVolume("missing")).isNull();
+        assertThat(cache.getSearch(SearchKey.of(SearchType.GENERAL, "missing"))).isNull();
+    }
+
+    private static GoogleBookDTO book(String id) {
+        return new GoogleBookDTO(id, new VolumeInfoDTO(
+                "Title of " + id,
+                new ArrayList<>(List.of("Author")),
+                "Publisher",
+                "2020",
+                "Description",
+                new ArrayList<>(List.of(new IndustryIdentifierDTO("ISBN_13", "9780000000001"))),
+                100,
+                new ArrayList<>(List.of("Fiction")),
+                new ImageLinksDTO("http://example.com/small/" + id, "http://example.com/thumb/" + id)));
+    }
+}
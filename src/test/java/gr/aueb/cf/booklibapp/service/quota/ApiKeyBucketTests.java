@@ -0,0 +1,133 @@
+package gr.aueb.cf.booklibapp.service.quota;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Time is passed in explicitly and the rate is one permit a minute, so nothing refills
+ * while a test runs.
+ */
+class ApiKeyBucketTests {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    void burstIsGrantedAtOnceThenCallersWaitTheirTurn() {
+        ApiKeyBucket bucket = new ApiKeyBucket("key", "key-0", 1, 5, 0);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryReserve(now, 1.0, 0)).isZero();
+        }
+        assertThat(bucket.tryReserve(now, 1.0, 0)).isEqualTo(-1);
+        assertThat(bucket.availablePermits(now)).isZero();
+
+        assertThat(bucket.tryReserve(now, 1.0, 2 * MINUTE)).isEqualTo(MINUTE);
+        assertThat(bucket.tryReserve(now, 1.0, 2 * MINUTE)).isEqualTo(2 * MINUTE);
+        assertThat(bucket.getGranted()).isEqualTo(7);
+    }
+
+    @Test
+    void lowerPrioritiesLeaveTheRestOfTheBurstToHigherOnes() {
+        ApiKeyBucket bucket = new ApiKeyBucket("key", "key-0", 1, 10, 0);
+        long now = System.nanoTime();
+
+        assertThat(grantedWithoutWaiting(bucket, now, QuotaPriority.SEARCH.getBurstShare())).isEqualTo(6);
+        assertThat(grantedWithoutWaiting(bucket, now, QuotaPriority.DETAIL.getBurstShare())).isEqualTo(3);
+        assertThat(grantedWithoutWaiting(bucket, now, QuotaPriority.FAVORITE.getBurstShare())).isEqualTo(1);
+    }
+
+    @Test
+    void releasedPermitCanBeReservedAgain() {
+        ApiKeyBucket bucket = new ApiKeyBucket("key", "key-0", 1, 2, 0);
+        long now = System.nanoTime();
+        bucket.tryReserve(now, 1.0, 0);
+        bucket.tryReserve(now, 1.0, 0);
+
+        bucket.release();
+
+        assertThat(bucket.getGranted()).isEqualTo(1);
+        assertThat(bucket.getDailyUsed()).isEqualTo(1);
+        assertThat(bucket.tryReserve(now, 1.0, 0)).isZero();
+        assertThat(bucket.tryReserve(now, 1.0, 0)).isEqualTo(-1);
+    }
+
+    @Test
+    void dailyLimitRejectsHoweverLongTheCallerWouldWait() {
+        ApiKeyBucket bucket = new ApiKeyBucket("key", "key-0", 1, 10, 3);
+        long now = System.nanoTime();
+
+        assertThat(grantedWithoutWaiting(bucket, now, 1.0)).isEqualTo(3);
+        assertThat(bucket.tryReserve(now, 1.0, Long.MAX_VALUE / 2)).isEqualTo(-1);
+        assertThat(bucket.peekWait(now, 1.0)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void penalizedKeyGrantsNothingUntilTheCooldownHasPassed() {
+        ApiKeyBucket bucket = new ApiKeyBucket("key", "key-0", 1, 5, 0);
+        long now = System.nanoTime();
+        long cooldown = TimeUnit.SECONDS.toNanos(10);
+
+        bucket.penalize(now, cooldown);
+
+        assertThat(bucket.getThrottled()).isEqualTo(1);
+        assertThat(bucket.tryReserve(now, 1.0, 0)).isEqualTo(-1);
+        assertThat(bucket.peekWait(now, 1.0)).isEqualTo(cooldown);
+        assertThat(bucket.tryReserve(now + cooldown, 1.0, 0)).isZero();
+    }
+
+    @Test
+    void concurrentCallersNeverShareAPermit() throws Exception {
+        int burst = 100;
+        int threads = 16;
+        ApiKeyBucket bucket = new ApiKeyBucket("key", "key-0", 1, burst, 0);
+        long now = System.nanoTime();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Callable<Integer> caller = () -> {
+                    start.await();
+                    return grantedWithoutWaiting(bucket, now, 1.0, 50);
+                };
+                results.add(executor.submit(caller));
+            }
+            start.countDown();
+            int granted = 0;
+            for (Future<Integer> result : results) {
+                granted += result.get(10, TimeUnit.SECONDS);
+            }
+
+            assertThat(granted).isEqualTo(burst);
+            assertThat(bucket.getGranted()).isEqualTo(burst);
+            assertThat(bucket.getDailyUsed()).isEqualTo(burst);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int grantedWithoutWaiting(ApiKeyBucket bucket, long now, double share) {
+        return grantedWithoutWaiting(bucket, now, share, 100);
+    }
+
+    private static int grantedWithoutWaiting(ApiKeyBucket bucket, long now, double share, int attempts) {
+        int granted = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (bucket.tryReserve(now, share, 0) == 0) {
+                granted++;
+            }
+        }
+        return granted;
+    }
+}
@@ -0,0 +1,134 @@
+package gr.aueb.cf.booklibapp.service.quota;
+
+import gr.aueb.cf.booklibapp.service.exceptions.QuotaExceededException;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QuotaGovernorTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void callsRotateOverTheKeys() {
+        QuotaGovernor governor = governor(new String[] {"first", "second"}, 1, 1);
+
+        Set<String> keys = Set.of(
+                governor.acquire(QuotaPriority.FAVORITE).block(TIMEOUT),
+                governor.acquire(QuotaPriority.FAVORITE).block(TIMEOUT));
+
+        assertThat(keys).containsExactlyInAnyOrder("first", "second");
+        assertThat(governor.getGranted("key-0")).isEqualTo(1);
+        assertThat(governor.getGranted("key-1")).isEqualTo(1);
+    }
+
+    @Test
+    void searchesAreRejectedWhileFavoritesStillGetTheReservedShare() {
+        QuotaGovernor governor = governor(new String[] {"key"}, 1, 10);
+
+        for (int i = 0; i < 6; i++) {
+            governor.acquire(QuotaPriority.SEARCH).block(TIMEOUT);
+        }
+        assertThatThrownBy(() -> governor.acquire(QuotaPriority.SEARCH).block(TIMEOUT))
+                .isInstanceOf(QuotaExceededException.class)
+                .satisfies(error -> assertThat(((QuotaExceededException) error).getRetryAfterSeconds()).isPositive());
+        for (int i = 0; i < 4; i++) {
+            assertThat(governor.acquire(QuotaPriority.FAVORITE).block(TIMEOUT)).isEqualTo("key");
+        }
+
+        assertThat(governor.getRejected(QuotaPriority.SEARCH)).isEqualTo(1);
+        assertThat(governor.getRejected(QuotaPriority.FAVORITE)).isZero();
+    }
+
+    @Test
+    void callerWaitsForTheNextPermitWithinItsLimit() {
+        QuotaGovernor governor = governor(new String[] {"key"}, 600, 1);     // A permit every 100 ms
+        governor.acquire(QuotaPriority.FAVORITE).block(TIMEOUT);
+
+        long start = System.nanoTime();
+        assertThat(governor.acquire(QuotaPriority.FAVORITE).block(TIMEOUT)).isEqualTo("key");
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(50);
+    }
+
+    @Test
+    void cancelledWaitReturnsItsPermit() {
+        QuotaGovernor governor = governor(new String[] {"key"}, 60, 1);      // A permit every second
+        governor.acquire(QuotaPriority.FAVORITE).block(TIMEOUT);
+
+        Disposable cancelled = governor.acquire(QuotaPriority.FAVORITE).subscribe();
+        assertThat(governor.getWaiting()).isEqualTo(1);
+        cancelled.dispose();
+
+        assertThat(governor.getWaiting()).isZero();
+        assertThat(governor.getGranted("key-0")).isEqualTo(1);
+
+        // Without the returned permit this wait would be about two seconds, beyond the detail limit
+        Disposable next = governor.acquire(QuotaPriority.DETAIL).subscribe();
+        try {
+            assertThat(governor.getRejected(QuotaPriority.DETAIL)).isZero();
+            assertThat(governor.getWaiting()).isEqualTo(1);
+        } finally {
+            next.dispose();
+        }
+    }
+
+    @Test
+    void concurrentCallersAreGrantedExactlyTheBurst() throws Exception {
+        int burst = 50;
+        int threads = 8;
+        int callsPerThread = 25;
+        QuotaGovernor governor = governor(new String[] {"key"}, 1, burst);
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int granted = 0;
+                    for (int i = 0; i < callsPerThread; i++) {
+                        try {
+                            governor.acquire(QuotaPriority.FAVORITE).block(TIMEOUT);
+                            granted++;
+                        } catch (QuotaExceededException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return granted;
+                }));
+            }
+            start.countDown();
+            int granted = 0;
+            for (Future<Integer> result : results) {
+                granted += result.get(10, TimeUnit.SECONDS);
+            }
+
+            assertThat(granted).isEqualTo(burst);
+            assertThat(rejected.get()).isEqualTo(threads * callsPerThread - burst);
+            assertThat(governor.getGranted("key-0")).isEqualTo(burst);
+            assertThat(governor.getRejected(QuotaPriority.FAVORITE)).isEqualTo(rejected.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static QuotaGovernor governor(String[] keys, int requestsPerMinute, int burst) {
+        return new QuotaGovernor(keys, requestsPerMinute, burst, 0, Duration.ofSeconds(10),
+                Duration.ofSeconds(2), Duration.ofMillis(1500), Duration.ofMillis(300));
+    }
+}